@@ -0,0 +1,80 @@
+package benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+
+import interpreter.command.Command;
+import interpreter.util.Memory;
+import lexical.LexicalAnalysis;
+import syntatic.SyntaticAnalysis;
+
+// Checks that counting loops over int variables run without allocating.
+// Each loop runs once to warm up and once more under the allocation
+// counter of the thread; the check fails if the second run allocates
+// more than a few bytes per iteration. Exits with status 1 on failure.
+// Usage: java benchmark.AllocationCheck [iterations]
+public class AllocationCheck {
+
+    private static final String[] LOOPS = {
+        "def i = 0, s = 0\n" +
+        "while (i < %d) { s += i; i += 1 }\n",
+
+        "def s = 0\n" +
+        "for (def i = 0; i < %d; i += 1) { s = s + i * 2 - 1; }\n",
+
+        "def i = %d, s = 0\n" +
+        "while (i > 0) { s += i %% 7 ** 2; i -= 1; }\n",
+    };
+
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+        com.sun.management.ThreadMXBean bean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        boolean failed = false;
+        for (String loop : LOOPS) {
+            String code = String.format(loop, n);
+            Command cmd;
+            int size;
+
+            File file = File.createTempFile("loop", ".mg");
+            try {
+                try (Writer out = new FileWriter(file)) {
+                    out.write(code);
+                }
+
+                try (LexicalAnalysis l = new LexicalAnalysis(file.getPath())) {
+                    SyntaticAnalysis s = new SyntaticAnalysis(l);
+                    cmd = s.start();
+                    size = s.frameSize();
+                }
+            } finally {
+                file.delete();
+            }
+
+            cmd.execute(new Memory(size));
+
+            Memory memory = new Memory(size);
+            long bytes = bean.getThreadAllocatedBytes(thread);
+            cmd.execute(memory);
+            bytes = bean.getThreadAllocatedBytes(thread) - bytes;
+
+            double perIteration = (double) bytes / n;
+            boolean ok = perIteration < 1.0;
+            failed |= !ok;
+
+            System.out.printf("%s %d bytes, %.3f bytes/iteration: %s",
+                ok ? "ok  " : "FAIL", bytes, perIteration, code.replace('\n', ' '));
+            System.out.println();
+        }
+
+        if (failed)
+            System.exit(1);
+    }
+
+}
@@ -0,0 +1,130 @@
+package benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import interpreter.command.Command;
+import interpreter.opt.Optimizer;
+import interpreter.vm.Compiler;
+import interpreter.vm.Program;
+import interpreter.vm.ProgramCache;
+import lexical.LexicalAnalysis;
+import lexical.Source;
+import syntatic.SyntaticAnalysis;
+
+// Compares getting a script ready for the VM from its source (lex,
+// parse, optimize, compile) with loading it from a ProgramCache, first
+// inside one JVM and then as whole mgi runs, which also pay for JVM
+// startup: mgi --vm against mgi --cache with the cache already filled.
+// Without a file, a script of the given number of statements is made.
+// Usage: java benchmark.CacheBenchmark [miniGroovy file | statements] [rounds]
+public class CacheBenchmark {
+
+    private static final String[] STATEMENTS = {
+        "v = v + 1;",
+        "if (v < 10) v += 2; else { v = 0; }",
+        "while (false) v = 1",
+        "foreach (def x in [1, 2]) v += x",
+        "for (def i = 0; i < 1; i += 1) { v = -v; }",
+        "def (a, b) = [v, [k: 'x']];",
+        "v = size(keys([k: 1])) * v % 1000;",
+    };
+
+    public static void main(String[] args) throws Exception {
+        String filename = args.length > 0 ? args[0] : "20000";
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        File generated = null;
+        if (filename.matches("\\d+")) {
+            generated = generate(Integer.parseInt(filename));
+            filename = generated.getPath();
+        }
+
+        Path directory = Files.createTempDirectory("mgc");
+        try {
+            ProgramCache cache = new ProgramCache(directory);
+            for (int round = 1; round <= rounds; round++) {
+                long time = System.nanoTime();
+                Source source = Source.fromFile(filename);
+                Program compiled = compile(source);
+                double cold = (System.nanoTime() - time) / 1e6;
+
+                String key = ProgramCache.key(source, true);
+                cache.put(key, compiled);
+
+                time = System.nanoTime();
+                Program loaded = cache.get(ProgramCache.key(Source.fromFile(filename), true));
+                double cached = (System.nanoTime() - time) / 1e6;
+
+                if (!Arrays.equals(loaded.code(), compiled.code()))
+                    throw new IllegalStateException("cached program differs");
+
+                System.out.printf("round %d: from source %.1f ms, from cache %.1f ms\n",
+                    round, cold, cached);
+            }
+
+            System.out.printf("mgi --vm:    %.0f ms\n", mgi(filename, "--vm"));
+            System.out.printf("mgi --cache: %.0f ms\n", mgi(filename, "--cache", directory.toString()));
+        } finally {
+            for (File file : directory.toFile().listFiles())
+                file.delete();
+            directory.toFile().delete();
+
+            if (generated != null)
+                generated.delete();
+        }
+    }
+
+    private static Program compile(Source source) {
+        try (LexicalAnalysis l = new LexicalAnalysis(source)) {
+            SyntaticAnalysis s = new SyntaticAnalysis(l);
+            Command c = new Optimizer().optimize(s.start());
+            return new Compiler(s.frameSize()).compile(c);
+        }
+    }
+
+    // Best wall time of a few runs of mgi in a new JVM.
+    private static double mgi(String filename, String... flags)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<String>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("mgi");
+        command.addAll(Arrays.asList(flags));
+        command.add(filename);
+
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long time = System.nanoTime();
+            new ProcessBuilder(command).redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start().waitFor();
+            best = Math.min(best, (System.nanoTime() - time) / 1e6);
+        }
+
+        return best;
+    }
+
+    private static File generate(int statements) throws IOException {
+        File file = File.createTempFile("cache", ".mg");
+        try (Writer out = new FileWriter(file)) {
+            out.write("def v = 0;\n");
+            for (int i = 1; i < statements; i++) {
+                out.write(STATEMENTS[i % STATEMENTS.length]);
+                out.write('\n');
+            }
+
+            out.write("println(v)\n");
+        }
+
+        return file;
+    }
+
+}
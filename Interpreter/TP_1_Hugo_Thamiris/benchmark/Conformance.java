@@ -0,0 +1,82 @@
+package benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Runs every script of a directory through mgi with the tree walker and
+// with each of the other modes, and checks that the output and the exit
+// status are the same. Each run is a separate JVM, since an error in a
+// script ends the process. Exits with status 1 if any script differs.
+// Usage: java benchmark.Conformance [directory] [mode flags...]
+//        (defaults: benchmark/scripts/conformance --vm)
+public class Conformance {
+
+    // Fed to the scripts that call read().
+    private static final String INPUT = "hugo\n21\n";
+
+    public static void main(String[] args) throws Exception {
+        File dir = new File(args.length > 0 ? args[0] : "benchmark/scripts/conformance");
+        List<String> modes = args.length > 1 ?
+            Arrays.asList(args).subList(1, args.length) : Arrays.asList("--vm");
+
+        File[] scripts = dir.listFiles((d, name) -> name.endsWith(".mg"));
+        if (scripts == null) {
+            System.out.println("No such directory: " + dir);
+            System.exit(1);
+        }
+
+        Arrays.sort(scripts);
+        int failures = 0;
+        for (File script : scripts) {
+            String expected = run(script, null);
+            for (String mode : modes) {
+                String actual = run(script, mode);
+                boolean same = expected.equals(actual);
+                if (!same)
+                    failures++;
+
+                System.out.printf("%s %-24s %s\n", same ? "ok  " : "DIFF", script.getName(), mode);
+                if (!same) {
+                    System.out.println("--- tree walker\n" + expected);
+                    System.out.println("--- " + mode + "\n" + actual);
+                }
+            }
+        }
+
+        System.out.printf("%d scripts, %d differences\n", scripts.length, failures);
+        if (failures > 0)
+            System.exit(1);
+    }
+
+    private static String run(File script, String mode) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<String>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("mgi");
+        if (mode != null)
+            command.addAll(Arrays.asList(mode.split(" ")));
+        command.add(script.getPath());
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        try (OutputStream in = process.getOutputStream()) {
+            in.write(INPUT.getBytes(StandardCharsets.ISO_8859_1));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream from = process.getInputStream()) {
+            from.transferTo(out);
+        }
+
+        int status = process.waitFor();
+        return out.toString(StandardCharsets.ISO_8859_1) + "[exit " + status + "]";
+    }
+
+}
@@ -0,0 +1,115 @@
+package benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import interpreter.engine.CompiledScript;
+import interpreter.engine.MgEngine;
+import interpreter.value.NumberValue;
+import interpreter.value.Value;
+
+// Runs a small script with a free variable n many times and reports the
+// time per run in four ways: a new JVM with mgi per run, compiling and
+// running it with MgEngine each time, running one CompiledScript over
+// and over, and the same from several threads at once.
+// Usage: java benchmark.EngineBenchmark [runs] [threads]
+public class EngineBenchmark {
+
+    private static final String SCRIPT =
+        "def squares = [];\n" +
+        "for (def i = 0; i < n; i += 1) squares += [i * i];\n" +
+        "def counts = [:];\n" +
+        "foreach (def s in squares) counts[(s % 7) as String] = s;\n" +
+        "def total = 0;\n" +
+        "foreach (def k in keys(counts)) total += counts[k];\n" +
+        "print(total)\n";
+
+    private static final int PROCESSES = 10;
+
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        Map<String, Value<?>> bindings = Collections.singletonMap("n", NumberValue.of(100));
+        Writer out = Writer.nullWriter();
+        MgEngine engine = new MgEngine();
+
+        System.out.printf("new JVM per run:   %.3f ms\n", processes());
+
+        for (int round = 0; round < 2; round++) {
+            long time = System.nanoTime();
+            for (int i = 0; i < runs; i++)
+                engine.compile(SCRIPT).eval(bindings, out);
+            report("compile and run:", time, runs);
+        }
+
+        CompiledScript script = engine.compile(SCRIPT);
+        for (int round = 0; round < 2; round++) {
+            long time = System.nanoTime();
+            for (int i = 0; i < runs; i++)
+                script.eval(bindings, out);
+            report("compiled once:", time, runs);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < 2; round++) {
+                List<Future<?>> done = new ArrayList<Future<?>>();
+                long time = System.nanoTime();
+                for (int t = 0; t < threads; t++) {
+                    done.add(pool.submit(() -> {
+                        for (int i = 0; i < runs / threads; i++)
+                            script.eval(bindings, Writer.nullWriter());
+                    }));
+                }
+
+                for (Future<?> f : done)
+                    f.get();
+                report(threads + " threads:", time, runs / threads * threads);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void report(String way, long start, int runs) {
+        System.out.printf("%-18s %.3f ms\n", way, (System.nanoTime() - start) / 1e6 / runs);
+    }
+
+    // Average wall time of running the script with mgi in a new JVM.
+    private static double processes() throws IOException, InterruptedException {
+        File file = File.createTempFile("engine", ".mg");
+        try {
+            try (Writer w = new FileWriter(file)) {
+                w.write("def n = 100;\n" + SCRIPT);
+            }
+
+            List<String> command = new ArrayList<String>();
+            command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add("mgi");
+            command.add(file.getPath());
+
+            long time = System.nanoTime();
+            for (int i = 0; i < PROCESSES; i++) {
+                Process process = new ProcessBuilder(command)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+                process.waitFor();
+            }
+
+            return (System.nanoTime() - time) / 1e6 / PROCESSES;
+        } finally {
+            file.delete();
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+package benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import lexical.LexicalAnalysis;
+import syntatic.SyntaticAnalysis;
+
+// Parses generated expressions of a few shapes and reports, for each,
+// the parse time at a given size and how deeply it can be nested before
+// a thread with a 256 KB stack overflows. The timed parses run on a
+// thread with a large stack so that deep shapes can be compared at all:
+//
+//     flat    1 + 2 * 3 - 1 + 2 * 3 - ...
+//     parens  ((((1))))
+//     power   2 ** 2 ** 2 ** ... ** 1
+//     mixed   (1 + (2 * (3 < (1 && (...)))))
+//
+// Usage: java benchmark.ExprBenchmark [size] [rounds]
+public class ExprBenchmark {
+
+    private static final long STACK = 256 * 1024;
+    private static final long LARGE_STACK = 1024 * 1024 * 1024;
+
+    // Deeper than this is reported as unbounded.
+    private static final int LIMIT = 1 << 17;
+
+    private static final String[] SHAPES = { "flat", "parens", "power", "mixed" };
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        for (String shape : SHAPES) {
+            File file = write(shape, size);
+            try {
+                double[] best = { Double.MAX_VALUE };
+                run(() -> {
+                    for (int round = 0; round < rounds; round++) {
+                        long time = System.nanoTime();
+                        parse(file);
+                        best[0] = Math.min(best[0], (System.nanoTime() - time) / 1e6);
+                    }
+                }, LARGE_STACK);
+
+                System.out.printf("%-6s size %d: %.2f ms, deepest with a 256 KB stack: %s\n",
+                    shape, size, best[0], shape.equals("flat") ? "-" : deepest(shape));
+            } finally {
+                file.delete();
+            }
+        }
+    }
+
+    // The largest size that parses on a small stack, by doubling and
+    // then bisecting.
+    private static String deepest(String shape) throws Exception {
+        int low = 1;
+        int high = 2;
+        while (fits(shape, high)) {
+            if (high >= LIMIT)
+                return "over " + LIMIT;
+
+            low = high;
+            high *= 2;
+        }
+
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            if (fits(shape, mid))
+                low = mid;
+            else
+                high = mid;
+        }
+
+        return String.valueOf(low);
+    }
+
+    private static boolean fits(String shape, int size) throws Exception {
+        File file = write(shape, size);
+        boolean[] ok = new boolean[1];
+        try {
+            run(() -> {
+                try {
+                    parse(file);
+                    ok[0] = true;
+                } catch (StackOverflowError e) {
+                    ok[0] = false;
+                }
+            }, STACK);
+        } finally {
+            file.delete();
+        }
+
+        return ok[0];
+    }
+
+    private static void run(Runnable task, long stack) throws InterruptedException {
+        Thread thread = new Thread(null, task, "parse", stack);
+        thread.start();
+        thread.join();
+    }
+
+    private static void parse(File file) {
+        try (LexicalAnalysis l = new LexicalAnalysis(file.getPath())) {
+            new SyntaticAnalysis(l).start();
+        }
+    }
+
+    private static File write(String shape, int size) throws IOException {
+        StringBuilder sb = new StringBuilder("println(");
+        switch (shape) {
+            case "flat":
+                for (int i = 0; i < size; i++)
+                    sb.append("1 + 2 * 3 - ");
+                sb.append("1");
+                break;
+            case "parens":
+                sb.append("(".repeat(size)).append("1").append(")".repeat(size));
+                break;
+            case "power":
+                sb.append("2 ** ".repeat(size)).append("1");
+                break;
+            default:
+                String[] ops = { " + ", " * ", " < ", " && " };
+                for (int i = 0; i < size; i++)
+                    sb.append("(").append(i % 3 + 1).append(ops[i % ops.length]);
+                sb.append("1").append(")".repeat(size));
+                break;
+        }
+        sb.append(")\n");
+
+        File file = File.createTempFile("expr", ".mg");
+        try (Writer out = new FileWriter(file)) {
+            out.write(sb.toString());
+        }
+
+        return file;
+    }
+
+}
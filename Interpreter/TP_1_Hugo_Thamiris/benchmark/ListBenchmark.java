@@ -0,0 +1,83 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+
+import interpreter.command.AssignCommand;
+import interpreter.command.Command;
+import interpreter.command.ForeachCommand;
+import interpreter.expr.BinaryOp;
+import interpreter.expr.ConstExpr;
+import interpreter.expr.Variable;
+import interpreter.util.Memory;
+import interpreter.value.ArrayValue;
+import interpreter.value.NumberValue;
+import interpreter.value.TextValue;
+
+// Builds a list of n large numbers twice, once kept in int storage and
+// once in the general storage (forced by a text stored first and then
+// replaced), and reports the heap each one takes per item and what
+//
+//     foreach (v in list) s += v
+//
+// costs and allocates per item over it.
+// Usage: java benchmark.ListBenchmark [items] [rounds]
+public class ListBenchmark {
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        com.sun.management.ThreadMXBean bean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        for (boolean ints : new boolean[] { true, false }) {
+            long heap = used();
+            ArrayValue list = build(n, ints);
+            heap = used() - heap;
+
+            Variable v = new Variable(1, "v", 0);
+            Variable s = new Variable(1, "s", 1);
+            Command loop = new ForeachCommand(1, v, true, new ConstExpr(1, list),
+                new AssignCommand(1, s, BinaryOp.ADD, v));
+
+            for (int round = 1; round <= rounds; round++) {
+                Memory memory = new Memory(2);
+                memory.writeInt(1, 0);
+
+                long bytes = bean.getThreadAllocatedBytes(thread);
+                long time = System.nanoTime();
+                loop.execute(memory);
+                time = System.nanoTime() - time;
+                bytes = bean.getThreadAllocatedBytes(thread) - bytes;
+
+                System.out.printf("%s round %d: %.1f bytes/item in the heap, foreach %.2f ns/item, %.2f bytes/item allocated\n",
+                    ints ? "int storage    " : "general storage", round, (double) heap / n,
+                    (double) time / n, (double) bytes / n);
+            }
+        }
+    }
+
+    private static ArrayValue build(int n, boolean ints) {
+        ArrayValue list = new ArrayValue();
+        if (!ints)
+            list.add(new TextValue("x"));
+
+        for (int i = 0; i < n; i++)
+            list.add(new NumberValue(1000000 + i));
+
+        if (!ints)
+            list.set(0, new NumberValue(0));
+
+        return list;
+    }
+
+    private static long used() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++)
+            System.gc();
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
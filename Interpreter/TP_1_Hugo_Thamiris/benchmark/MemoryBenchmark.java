@@ -0,0 +1,90 @@
+package benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import interpreter.command.AssignCommand;
+import interpreter.command.BlocksCommand;
+import interpreter.command.Command;
+import interpreter.command.WhileCommand;
+import interpreter.expr.BinaryExpr;
+import interpreter.expr.BinaryOp;
+import interpreter.expr.ConstExpr;
+import interpreter.expr.SetExpr;
+import interpreter.expr.Variable;
+import interpreter.util.Memory;
+import interpreter.value.NumberValue;
+import interpreter.value.Value;
+
+// Runs the same counting loop
+//
+//     i = 0; s = 0
+//     while (i < n) { s += i; i += 1 }
+//
+// with variables kept in slots of a frame and with variables looked up by
+// name in a HashMap, as the interpreter used to do.
+// Usage: java benchmark.MemoryBenchmark [iterations] [rounds]
+public class MemoryBenchmark {
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        Command slots = loop(new Variable(1, "i", 0), new Variable(1, "s", 1), n);
+        Command names = loop(new NamedVariable("i"), new NamedVariable("s"), n);
+
+        for (int round = 1; round <= rounds; round++) {
+            long t0 = System.nanoTime();
+            slots.execute(new Memory(2));
+            long t1 = System.nanoTime();
+            NamedVariable.memory.clear();
+            names.execute(new Memory(0));
+            long t2 = System.nanoTime();
+
+            System.out.printf("round %d: slots %.1f ns/iteration, HashMap %.1f ns/iteration\n",
+                round, (double) (t1 - t0) / n, (double) (t2 - t1) / n);
+        }
+    }
+
+    private static Command loop(SetExpr i, SetExpr s, int n) {
+        BlocksCommand body = new BlocksCommand(1);
+        body.addCommand(new AssignCommand(1, s, BinaryOp.ADD, i));
+        body.addCommand(new AssignCommand(1, i, BinaryOp.ADD, number(1)));
+
+        BlocksCommand cmds = new BlocksCommand(1);
+        cmds.addCommand(new AssignCommand(1, i, null, number(0)));
+        cmds.addCommand(new AssignCommand(1, s, null, number(0)));
+        cmds.addCommand(new WhileCommand(1,
+            new BinaryExpr(1, i, BinaryOp.LOWER, number(n)), body));
+        return cmds;
+    }
+
+    private static ConstExpr number(int value) {
+        return new ConstExpr(1, new NumberValue(value));
+    }
+
+    // A variable resolved by name on every access.
+    private static class NamedVariable extends SetExpr {
+
+        private static Map<String, Value<?>> memory = new HashMap<String, Value<?>>();
+
+        private String name;
+
+        NamedVariable(String name) {
+            super(1);
+            this.name = name;
+        }
+
+        @Override
+        public Value<?> expr(Memory unused) {
+            return memory.get(name);
+        }
+
+        @Override
+        public void setValue(Memory unused, Value<?> value) {
+            memory.put(name, value);
+        }
+
+    }
+
+}
@@ -0,0 +1,90 @@
+package benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+import lexical.LexicalAnalysis;
+import syntatic.SyntaticAnalysis;
+
+// Parses a file a few times and reports the parse time and the heap
+// still held by the parser once it reaches the end of the file. Given a
+// number instead of a file, parses a generated program with that many
+// statements of every kind.
+// Usage: java benchmark.ParserBenchmark [miniGroovy file | statements] [rounds]
+public class ParserBenchmark {
+
+    private static final String[] STATEMENTS = {
+        "v = v + 1;",
+        "println(v)",
+        "if (v < 10) v += 2; else { v = 0; }",
+        "while (false) v = 1",
+        "foreach (def x in [1, 2]) print(x)",
+        "for (def i = 0; i < 1; i += 1) { v = -v; }",
+        "def (a, b) = [v, [k: 'x']];",
+        "v **= size(keys([k: 1])) * 1;",
+    };
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java benchmark.ParserBenchmark [miniGroovy file | statements] [rounds]");
+            return;
+        }
+
+        String filename = args[0];
+        File generated = null;
+        if (filename.matches("\\d+")) {
+            generated = generate(Integer.parseInt(filename));
+            filename = generated.getPath();
+        }
+
+        try {
+            run(filename, args.length > 1 ? Integer.parseInt(args[1]) : 5);
+        } finally {
+            if (generated != null)
+                generated.delete();
+        }
+    }
+
+    private static void run(String filename, int rounds) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+        for (int round = 1; round <= rounds; round++) {
+            System.gc();
+            long before = memory.getHeapMemoryUsage().getUsed();
+
+            try (LexicalAnalysis l = new LexicalAnalysis(filename)) {
+                long time = System.nanoTime();
+                SyntaticAnalysis s = new SyntaticAnalysis(l);
+                s.start();
+                time = System.nanoTime() - time;
+
+                System.gc();
+                long retained = memory.getHeapMemoryUsage().getUsed() - before;
+                System.out.printf("round %d: %.1f ms, %.1f MB retained\n",
+                    round, time / 1e6, retained / (1024.0 * 1024.0));
+
+                // Keeps the parser reachable until it has been measured.
+                if (s.hashCode() == 0)
+                    System.out.println();
+            }
+        }
+    }
+
+    private static File generate(int statements) throws IOException {
+        File file = File.createTempFile("statements", ".mg");
+        try (Writer out = new FileWriter(file)) {
+            out.write("def v = 0;\n");
+            for (int i = 1; i < statements; i++) {
+                out.write(STATEMENTS[i % STATEMENTS.length]);
+                out.write('\n');
+            }
+        }
+
+        return file;
+    }
+
+}
@@ -0,0 +1,72 @@
+package benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+
+import interpreter.value.ArrayValue;
+import interpreter.value.MapValue;
+import interpreter.value.NumberValue;
+import interpreter.value.TextValue;
+import interpreter.value.Value;
+import interpreter.value.ValuePrinter;
+
+// Prints a list of n maps like [id:1, name:item1, tags:[1, 2]] to a
+// buffered writer that throws the bytes away, in three ways: as one
+// String made by toString(), streamed by a ValuePrinter, and streamed
+// but cut to 2 levels and 10 items. Reports the time and the bytes
+// allocated by each.
+// Usage: java benchmark.PrintBenchmark [items] [rounds]
+public class PrintBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        ArrayValue list = new ArrayValue();
+        for (int i = 0; i < n; i++) {
+            MapValue map = new MapValue();
+            map.put("id", NumberValue.of(i));
+            map.put("name", new TextValue("item" + i));
+
+            ArrayValue tags = new ArrayValue();
+            tags.add(NumberValue.of(i));
+            tags.add(NumberValue.of(i + 1));
+            map.put("tags", tags);
+            list.add(map);
+        }
+
+        com.sun.management.ThreadMXBean bean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        for (int round = 1; round <= rounds; round++) {
+            for (int way = 0; way < 3; way++) {
+                Writer out = new BufferedWriter(new OutputStreamWriter(OutputStream.nullOutputStream()));
+                long bytes = bean.getThreadAllocatedBytes(thread);
+                long time = System.nanoTime();
+                print(out, list, way);
+                out.flush();
+                time = System.nanoTime() - time;
+                bytes = bean.getThreadAllocatedBytes(thread) - bytes;
+
+                System.out.printf("round %d: %-9s %.1f ms, %.1f MB allocated\n", round,
+                    way == 0 ? "toString" : way == 1 ? "streamed" : "truncated",
+                    time / 1e6, bytes / 1e6);
+            }
+        }
+    }
+
+    private static void print(Writer out, Value<?> value, int way) throws IOException {
+        if (way == 0)
+            out.write(value.toString());
+        else if (way == 1)
+            new ValuePrinter(out).print(value);
+        else
+            new ValuePrinter(out, 2, 10).print(value);
+    }
+
+}
@@ -0,0 +1,66 @@
+package benchmark;
+
+import interpreter.command.Command;
+import interpreter.jit.Jit;
+import interpreter.opt.Optimizer;
+import interpreter.util.Memory;
+import interpreter.vm.Compiler;
+import interpreter.vm.Program;
+import interpreter.vm.VM;
+import lexical.LexicalAnalysis;
+import syntatic.SyntaticAnalysis;
+
+// Parses a script once and runs it a few times, reporting the time of
+// each run; later runs show the interpreter once it has warmed up. With
+// --vm the script is compiled once and run by the VM instead; with
+// --no-jit the tree walker never compiles its hot loops, and with
+// --no-opt the AST runs as parsed, without the Optimizer.
+// Usage: java benchmark.ScriptBenchmark [--vm] [--no-jit] [--no-opt] [miniGroovy file] [rounds]
+public class ScriptBenchmark {
+
+    public static void main(String[] args) {
+        boolean vm = false;
+        boolean optimize = true;
+        int first = 0;
+        for (; first < args.length && args[first].startsWith("--"); first++) {
+            if (args[first].equals("--vm"))
+                vm = true;
+            else if (args[first].equals("--no-jit"))
+                Jit.setThreshold(0);
+            else if (args[first].equals("--no-opt"))
+                optimize = false;
+        }
+
+        if (args.length <= first) {
+            System.out.println("Usage: java benchmark.ScriptBenchmark [--vm] [--no-jit] [--no-opt] [miniGroovy file] [rounds]");
+            return;
+        }
+
+        int rounds = args.length > first + 1 ? Integer.parseInt(args[first + 1]) : 5;
+
+        Command cmd;
+        int size;
+        try (LexicalAnalysis l = new LexicalAnalysis(args[first])) {
+            SyntaticAnalysis s = new SyntaticAnalysis(l);
+            cmd = s.start();
+            size = s.frameSize();
+        }
+
+        if (optimize)
+            cmd = new Optimizer().optimize(cmd);
+
+        Program program = vm ? new Compiler(size).compile(cmd) : null;
+
+        for (int round = 1; round <= rounds; round++) {
+            long time = System.nanoTime();
+            if (vm)
+                new VM().run(program);
+            else
+                cmd.execute(new Memory(size));
+            time = System.nanoTime() - time;
+
+            System.out.printf("round %d: %.1f ms\n", round, time / 1e6);
+        }
+    }
+
+}
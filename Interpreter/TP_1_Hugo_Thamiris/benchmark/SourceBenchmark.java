@@ -0,0 +1,76 @@
+package benchmark;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PushbackInputStream;
+
+import lexical.Lexeme;
+import lexical.LexicalAnalysis;
+import lexical.Source;
+import lexical.TokenType;
+
+// Compares the old PushbackInputStream reader with the mapped Source.
+// Usage: java benchmark.SourceBenchmark [miniGroovy file] [rounds]
+public class SourceBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java benchmark.SourceBenchmark [miniGroovy file] [rounds]");
+            return;
+        }
+
+        String filename = args[0];
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        for (int i = 0; i < rounds; i++) {
+            long t0 = System.nanoTime();
+            long n1 = readStream(filename);
+            long t1 = System.nanoTime();
+            long n2 = readSource(filename);
+            long t2 = System.nanoTime();
+            long n3 = tokenize(filename);
+            long t3 = System.nanoTime();
+
+            System.out.printf("round %d: stream %.1f MB/s, source %.1f MB/s, lexer %.1f Mtokens/s\n",
+                i + 1, mbps(n1, t1 - t0), mbps(n2, t2 - t1), n3 / ((t3 - t2) / 1e3));
+        }
+    }
+
+    private static long readStream(String filename) throws IOException {
+        long count = 0;
+        try (PushbackInputStream in = new PushbackInputStream(
+                new FileInputStream(filename), 2)) {
+            while (in.read() != -1)
+                count++;
+        }
+
+        return count;
+    }
+
+    private static long readSource(String filename) throws IOException {
+        long count = 0;
+        Source src = Source.fromFile(filename);
+        while (src.getc() != -1)
+            count++;
+
+        return count;
+    }
+
+    private static long tokenize(String filename) {
+        long count = 0;
+        try (LexicalAnalysis l = new LexicalAnalysis(filename)) {
+            Lexeme lex;
+            do {
+                lex = l.nextToken();
+                count++;
+            } while (lex.type != TokenType.END_OF_FILE);
+        }
+
+        return count;
+    }
+
+    private static double mbps(long bytes, long nanos) {
+        return (bytes / (1024.0 * 1024.0)) / (nanos / 1e9);
+    }
+
+}
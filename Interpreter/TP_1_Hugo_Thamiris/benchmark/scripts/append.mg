@@ -0,0 +1,20 @@
+// Builds a list with + one item at a time; every step makes a new list
+// that shares the items of the previous one.
+def items = []
+def i = 0
+while (i < 1000000) {
+    items = items + i
+    i += 1
+}
+
+def m = [:]
+i = 0
+while (i < 200000) {
+    m = m + [x: i]
+    m[i as String] = i
+    i += 1
+}
+
+println(size(items))
+println(items[-1])
+println(size(m))
@@ -0,0 +1,18 @@
+// Arithmetic over list items and map fields, where the operand types are
+// only known at run time.
+def n = 200000
+def a = [0, 1]
+def i = 2
+while (i < n) {
+    a[i] = (a[i - 1] + a[i - 2] * 3 - i) % 1000003
+    i += 1
+}
+
+def p = [x: 0, y: 0]
+foreach (def v in a) {
+    p.x = p.x + v
+    if (p.x > v * 2) p.y = p.y - 1 else p.y = p.y + 1
+}
+
+println(a[n - 1])
+println(p)
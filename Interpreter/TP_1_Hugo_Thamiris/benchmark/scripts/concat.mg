@@ -0,0 +1,15 @@
+// Builds a 100 MB text ten characters at a time, then a second one by
+// appending to a copy of a prefix of the first.
+def s = ''
+def i = 0
+while (i < 10000000) {
+    s += '0123456789'
+    i += 1
+}
+
+def t = s
+t = t + '!'
+s = s + '?'
+println(size(s))
+println(size(t))
+println(s[-2] + s[-1] + t[-1])
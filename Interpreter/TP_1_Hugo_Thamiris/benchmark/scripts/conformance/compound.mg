@@ -0,0 +1,9 @@
+// A compound assignment evaluates the base and index of its target once:
+// one prompt, one line read, and the element read is the one written.
+def l = [1, 2, 3, 4, 5]
+l[size(read('index? '))] += 10
+println(l)
+def m = [a: [0, 0]]
+m.a[size(read('again? ')) - 1] -= 1
+println(m)
+println(read('') == null)
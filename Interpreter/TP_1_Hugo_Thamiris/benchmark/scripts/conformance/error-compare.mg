@@ -0,0 +1,3 @@
+// Comparing a number with a text.
+println(1 <
+  'a')
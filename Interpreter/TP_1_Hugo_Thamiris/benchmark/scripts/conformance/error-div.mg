@@ -0,0 +1,5 @@
+// Division by zero stops the program.
+def a = 1
+println(a)
+println(10 / (a - 1))
+println('not here')
@@ -0,0 +1,3 @@
+// foreach over a map.
+foreach (def x in [a: 1])
+  println(x)
@@ -0,0 +1,3 @@
+// A variable used outside its scope.
+if (true) { def x = 1 }
+println(x)
@@ -0,0 +1,3 @@
+// Assigning into a text.
+def t = 'abc'
+t[0] = 'x'
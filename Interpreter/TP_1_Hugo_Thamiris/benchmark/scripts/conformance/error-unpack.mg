@@ -0,0 +1,2 @@
+// Unpacking something that is not a list.
+def (a, b) = 3
@@ -0,0 +1,33 @@
+// Declarations, operators, lists, maps and every command.
+def a = 2, b = 3
+println(a + b * 2 ** 3 ** 2)
+def (x, y, z) = [1, 'two', true]
+println(x); println(y); println(z)
+def l = [1, 2, 3]
+l += 4
+l[6] = 7
+println(l)
+println(l[-1])
+def m = [name: 'hugo', age: 20]
+m.city = 'bh'
+println(m)
+println(keys(m))
+println(values(m))
+println((size(m) as String) + '!')
+println('ab' * 3)
+def s = 0
+for (def i = 0; i < 10; i += 1) s += i
+println(s)
+foreach (def v in l) { if (v != null) print(v) else print('-') }
+println('')
+def w = 5
+while (w > 0) { w -= 2 }
+println(w)
+println(switch (w) { case -1 -> 'neg' default -> 'other' })
+println(2 in l)
+println('hu' in 'hugo')
+println(!(1 < 2) || 7 % 3 == 1)
+println(('42' as Integer) + 1)
+println(empty([]))
+println([:])
+println(-w ** 2)
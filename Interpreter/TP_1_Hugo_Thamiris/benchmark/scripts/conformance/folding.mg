@@ -0,0 +1,22 @@
+// Constant folding and dead arms; every line must print what the
+// unoptimized tree prints, and the error must keep its line.
+def x = 3
+if (true) println(1 + 2 * 3) else println('dead')
+if (false) println('dead')
+println('a' + 'b' + 1)
+println(switch (2) { case 1-> 'one' case 2-> 'two' default-> 'many' })
+println(switch (x) { case 1-> 'one' case 1-> 'dup' case 3-> 'three' default-> 'many' })
+println(switch (5) { case 1-> 'one' default-> 'many' })
+println(switch (5) { case 1-> 'one' })
+println((x + 1) as Integer)
+println(true && x)
+println(false || 0)
+println(!true)
+println(-(4 - 6))
+println('ab' * 3)
+println(('10' as Integer) + 2)
+println(x > 2 && true)
+while (false) println('dead')
+for (def i = 0; false; i += 1) println('dead')
+def k = 0
+for (def j = 0; true; j += 1) { k += j; if (k > 10) println(k) ; if (k > 10) x = 0 ; if (x == 0) println('x') ; if (x == 0) k = -100; if (k < 0) println(j); if (k < 0) k = 0 ; if (j > 7) println('end') ; if (j > 7) x = 'z'; if (x == 'z') println('stop') ; if (x == 'z') x = 1 / 0 }
@@ -0,0 +1,24 @@
+// Short-circuit operators, switch and casts.
+def calls = 0
+def l = [1, 2, 3]
+println(true && false || true)
+println(null || 0 || '' || [] || [:])
+println(size(l) > 2 && l[2] == 3)
+println(false && l[10] == 1)
+def k = 'b'
+println(switch (k) { case 'a' -> 1 case 'b' -> 2 default -> 3 })
+println(switch (k + k) { case 'a' -> 1 case 'b' -> 2 })
+println(switch (size(l)) { case 1 + 2 -> 'three' default -> 'other' })
+println(true as Integer)
+println(('12' as Integer) + 0)
+println('x1' as Integer)
+println(null as Integer)
+println([1] as Boolean)
+println([:] as String)
+println(!l)
+println(!(!l))
+if (l) println('yes') else println('no')
+if ([]) println('yes') else println('no')
+def x = 3
+x = x && true
+println(x)
@@ -0,0 +1,72 @@
+// Int loops of every shape the loop compiler takes, and some it does not.
+def n = 0, total = 0
+while (n < 30) {
+    def sq = n * n
+    if (n % 3 == 0 && !(n == 9) || n == 10)
+        total += sq
+    else if (n > 20)
+        total -= n / 2
+    else
+        total = total * 2 % 1000
+    n += 1
+}
+println(total)
+
+for (def i = 0; i < 4; i += 1) {
+    for (def j = -2; j <= 2; j = j + 1) {
+        print(i ** 2 + j)
+        print(' ')
+    }
+    println(i)
+}
+
+// The loop variable changes type halfway, so the guard sends the loop
+// back to the tree walker.
+def k = 0, mixed = 0
+while (k < 12) {
+    if (k == 6)
+        mixed = 'text'
+    else if (k > 6)
+        mixed = k
+    else
+        mixed += k
+    k += 1
+}
+println(mixed)
+
+// A text variable keeps the loop out of the compiled code.
+def s = 'a'
+def m = 0
+while (m < 5) {
+    s = s + m
+    m += 1
+}
+println(s)
+
+// The inner loop is compiled while v holds ints; in the second round v
+// starts as text and the compiled code is only entered once the tree
+// walker has put an int in it.
+def v = 0, round = 0
+while (round < 3) {
+    if (round == 1)
+        v = 'text'
+    def t = 0
+    while (t < 4) {
+        v = t * round
+        t += 1
+    }
+    println(v)
+    round += 1
+}
+
+def big = 2147483000
+while (big > 0)
+    big += 100
+println(big)
+
+def c = 10
+while (c >= -3) {
+    println(100 / c)
+    c -= 1
+}
+println('not here')
@@ -0,0 +1,22 @@
+// Integer arithmetic, overflow and the unboxed paths.
+def a = 7, b = -3, c = 'x', l = [1, 2]
+println(a / b); println(a % b); println(b ** 3); println(-a + b * 2)
+println(2 ** 10 * 3 - a); println(1 + 2 < 4); println(a == 7); println(a != b)
+def big = 1000000
+big *= big
+println(big)
+a += 1
+c += a
+println(c)
+l -= 1
+println(l)
+l += [5, 6]
+println(l)
+println(size(l) + 1)
+println((size('abc') as String) + 1)
+def n = null
+println(n == null)
+def i = 0, s = 0
+while (i < 100000) { s += i; i += 1 }
+println(s)
+println(0 - 2147483647 - 2)
@@ -0,0 +1,7 @@
+// read() prompts and returns null at the end of the input.
+def name = read('name? ')
+println('hi ' + name)
+def n = read('number? ') as Integer
+println(n * 2)
+println(read('more? '))
+println(read('') == null)
@@ -0,0 +1,8 @@
+// Variables declared in blocks and loop headers.
+def x = 'outer'
+if (true) { def x = 'inner'; println(x) }
+println(x)
+for (def i = 0; i < 2; i += 1) { def t = i * 10; println(t) }
+def y = 5
+foreach (y in [7, 8]) print(y)
+println(y)
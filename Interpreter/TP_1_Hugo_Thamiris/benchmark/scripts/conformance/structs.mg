@@ -0,0 +1,44 @@
+// Indexing, nested structures and compound assignment to elements.
+def m = [a: [1, 2], b: [c: 'd']]
+m.a[0] += 10
+m.a[-1] *= 3
+m.b.c += '!'
+m['e'] = null
+println(m)
+println(m.a[5])
+println(m.x)
+def h = 'hello'
+println(h[1] + h[-1])
+def (p, q, r) = m.a
+println(p); println(q); println(r)
+def t = [[1, 2], [3, 4]]
+def s = 0
+foreach (def row in t) foreach (def v in row) s += v
+println(s)
+def grow = []
+for (def i = 0; i < 5; i += 1) grow[i * 2] = i
+println(grow)
+println(keys(m) + values(m.b))
+println(m - 'a')
+println([1, 2, 2, 3] - 2)
+println([1, 2] + [3] + 4)
+println([a: 1] + [b: 2])
+println(2 in [1, 2] && 'a' in [a: 1] && !(3 in [1]))
+println('ell' !in 'hello')
+println(empty('') && !empty(' '))
+def i = 0
+foreach (def v in grow) { if (i == 0) grow += 99; i += 1 }
+println(i)
+def loop = [1, 2]
+loop[0] = loop
+def held = [loop]
+println(held == [loop] && loop in held && loop == loop)
+def twin = [1, 2]
+twin[0] = twin
+println(loop == twin)
+def self = [k: 1]
+self.k = self
+println([self] == [self] && self != [k: self])
+println(loop)
+println(self)
+println([a: 1, b: 2, a: 3])
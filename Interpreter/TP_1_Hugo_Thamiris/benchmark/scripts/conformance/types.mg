@@ -0,0 +1,3 @@
+// Operators that see different types at the same place.
+foreach (def x in [1, 'a', 2, [3], 4]) println(x + x)
+foreach (def y in [1, 'b', 2]) println(y < y)
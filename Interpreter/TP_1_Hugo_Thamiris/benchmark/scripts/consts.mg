@@ -0,0 +1,16 @@
+// Generated-looking code: literal arithmetic, literal text, if (true)
+// and a switch on a literal, inside a loop that also handles text.
+def total = 0, label = '', i = 0
+while (i < 300000) {
+    if (true)
+        total = total + i * (1 + 2 * 3) - 60 / 6
+    else
+        total = 0
+    label = switch ('mode' + '-' + 2) { case 'mode-1' -> 'a' case 'mode-2' -> 'b' default -> 'c' }
+    if (('7' as Integer) > 5 && i < 0)
+        println('never')
+    i += 1
+}
+
+println(total)
+println(label)
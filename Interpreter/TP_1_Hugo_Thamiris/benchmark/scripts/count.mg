@@ -0,0 +1,4 @@
+// A counting loop over two int variables.
+def i = 0, s = 0
+while (i < 5000000) { s += i; i += 1 }
+println(s)
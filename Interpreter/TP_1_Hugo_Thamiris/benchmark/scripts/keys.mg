@@ -0,0 +1,20 @@
+// Iterates the names and values of a map with 500000 entries a few
+// times, and asks for their sizes.
+def m = [:]
+def i = 0
+while (i < 500000) {
+    m['k' + i] = i
+    i += 1
+}
+
+def n = 0, s = 0
+i = 0
+while (i < 5) {
+    foreach (def k in keys(m)) n += 1
+    foreach (def v in values(m)) s += v
+    n += size(keys(m)) + size(values(m))
+    i += 1
+}
+
+println(n)
+println(s)
@@ -0,0 +1,7 @@
+// Prints 10 million short lines; run with the output sent to a file or
+// /dev/null to see what printing itself costs.
+def i = 0
+while (i < 10000000) {
+    println(i)
+    i += 1
+}
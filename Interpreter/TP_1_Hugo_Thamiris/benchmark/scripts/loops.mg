@@ -0,0 +1,23 @@
+// Nested int loops: a sieve-free prime count and a sum of digit sums.
+def primes = 0
+for (def n = 2; n < 20000; n += 1) {
+    def d = 2, prime = 1
+    while (d * d <= n && prime) {
+        if (n % d == 0)
+            prime = 0
+        d += 1
+    }
+    if (prime)
+        primes += 1
+}
+println(primes)
+
+def digits = 0
+for (def i = 0; i < 300000; i += 1) {
+    def x = i
+    while (x > 0) {
+        digits += x % 10
+        x = x / 10
+    }
+}
+println(digits)
@@ -0,0 +1,27 @@
+// Membership tests against a list of 1000 lists of 200 numbers each.
+// Each row differs from the others only in its last item, so telling
+// them apart item by item means walking all 200.
+def rows = []
+def i = 0
+while (i < 1000) {
+    def row = []
+    def j = 0
+    while (j < 199) {
+        row[j] = j
+        j += 1
+    }
+    row[199] = i
+    rows[i] = row
+    i += 1
+}
+
+def probe = rows[999] + []
+def found = 0
+i = 0
+while (i < 2000) {
+    if (probe in rows) found += 1
+    if ([1, 2] !in rows) found += 1
+    i += 1
+}
+
+println(found)
@@ -0,0 +1,13 @@
+// Text concatenation and comparison.
+def i = 0, total = 0
+def last = ''
+while (i < 200000) {
+    def t = 'item' + i
+    t = t + '-' + t + ':' + (i % 10)
+    if (t != last) total += size(t)
+    last = t
+    i += 1
+}
+
+println(total)
+println(last)
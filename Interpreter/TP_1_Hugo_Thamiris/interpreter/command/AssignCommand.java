@@ -0,0 +1,64 @@
+package interpreter.command;
+
+import interpreter.expr.AccessExpr;
+import interpreter.expr.BinaryExpr;
+import interpreter.expr.BinaryOp;
+import interpreter.expr.Expr;
+import interpreter.expr.SetExpr;
+import interpreter.util.Memory;
+import interpreter.value.Value;
+
+// [ left ( '=' | op'=' ) ] right. Without a left side the expression is
+// only evaluated; a compound assignment applies op to the old value.
+// The base and index of an access are evaluated once, before the right
+// side, and both the read and the write go through them.
+public class AssignCommand extends Command {
+
+    private SetExpr left;
+    private BinaryOp op;
+    private Expr right;
+
+    public AssignCommand(int line, SetExpr left, BinaryOp op, Expr right) {
+        super(line);
+        this.left = left;
+        this.op = op;
+        this.right = right;
+    }
+
+    public SetExpr getLeft() {
+        return left;
+    }
+
+    public BinaryOp getOp() {
+        return op;
+    }
+
+    public Expr getRight() {
+        return right;
+    }
+
+    @Override
+    public void execute(Memory memory) {
+        if (left == null) {
+            right.expr(memory);
+        } else if (op == null) {
+            if (right.isInt(memory))
+                left.setInt(memory, right.exprInt(memory));
+            else
+                left.setValue(memory, right.expr(memory));
+        } else if (left.isInt(memory) && right.isInt(memory)) {
+            left.setInt(memory, BinaryExpr.arith(op, getLine(),
+                left.exprInt(memory), right.exprInt(memory)));
+        } else if (left instanceof AccessExpr) {
+            AccessExpr access = (AccessExpr) left;
+            Value<?> base = access.getBase().expr(memory);
+            Value<?> index = access.getIndex().expr(memory);
+            Value<?> old = AccessExpr.get(access.getLine(), base, index);
+            AccessExpr.set(access.getLine(), base, index,
+                BinaryExpr.apply(op, getLine(), old, right.expr(memory)));
+        } else {
+            left.setValue(memory, BinaryExpr.apply(op, getLine(), left.expr(memory), right.expr(memory)));
+        }
+    }
+
+}
@@ -0,0 +1,32 @@
+package interpreter.command;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import interpreter.util.Memory;
+
+public class BlocksCommand extends Command {
+
+    private List<Command> cmds;
+
+    public BlocksCommand(int line) {
+        super(line);
+        this.cmds = new ArrayList<Command>();
+    }
+
+    public void addCommand(Command cmd) {
+        cmds.add(cmd);
+    }
+
+    public List<Command> getCommands() {
+        return cmds;
+    }
+
+    @Override
+    public void execute(Memory memory) {
+        // Indexed, so running a block does not allocate an iterator.
+        for (int i = 0; i < cmds.size(); i++)
+            cmds.get(i).execute(memory);
+    }
+
+}
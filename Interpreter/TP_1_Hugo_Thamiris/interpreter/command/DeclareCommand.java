@@ -0,0 +1,35 @@
+package interpreter.command;
+
+import interpreter.expr.Expr;
+import interpreter.expr.Variable;
+import interpreter.util.Memory;
+
+// def name [ = expr ]
+public class DeclareCommand extends Command {
+
+    private Variable var;
+    private Expr expr;
+
+    public DeclareCommand(int line, Variable var, Expr expr) {
+        super(line);
+        this.var = var;
+        this.expr = expr;
+    }
+
+    public Variable getVariable() {
+        return var;
+    }
+
+    public Expr getExpr() {
+        return expr;
+    }
+
+    @Override
+    public void execute(Memory memory) {
+        if (expr != null && expr.isInt(memory))
+            var.setInt(memory, expr.exprInt(memory));
+        else
+            var.setValue(memory, expr == null ? null : expr.expr(memory));
+    }
+
+}
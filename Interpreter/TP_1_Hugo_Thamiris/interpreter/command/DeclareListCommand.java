@@ -0,0 +1,44 @@
+package interpreter.command;
+
+import java.util.List;
+
+import interpreter.expr.Expr;
+import interpreter.expr.Variable;
+import interpreter.util.Memory;
+import interpreter.util.Utils;
+import interpreter.value.ArrayValue;
+import interpreter.value.Value;
+
+// def (a, b, ...) = expr; the list is unpacked in order and the
+// variables left over receive null.
+public class DeclareListCommand extends Command {
+
+    private List<Variable> vars;
+    private Expr expr;
+
+    public DeclareListCommand(int line, List<Variable> vars, Expr expr) {
+        super(line);
+        this.vars = vars;
+        this.expr = expr;
+    }
+
+    public List<Variable> getVariables() {
+        return vars;
+    }
+
+    public Expr getExpr() {
+        return expr;
+    }
+
+    @Override
+    public void execute(Memory memory) {
+        Value<?> value = expr.expr(memory);
+        if (!(value instanceof ArrayValue))
+            Utils.abort(getLine());
+
+        ArrayValue list = (ArrayValue) value;
+        for (int i = 0; i < vars.size(); i++)
+            vars.get(i).setValue(memory, i < list.size() ? list.get(i) : null);
+    }
+
+}
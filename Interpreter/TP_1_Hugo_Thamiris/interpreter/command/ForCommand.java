@@ -0,0 +1,62 @@
+package interpreter.command;
+
+import interpreter.expr.Expr;
+import interpreter.jit.LoopProfile;
+import interpreter.util.Memory;
+import interpreter.util.Utils;
+
+// for (init; cond; update) body; any of the three parts may be missing
+// and a missing condition is always true.
+public class ForCommand extends Command {
+
+    private Command init;
+    private Expr cond;
+    private Command update;
+    private Command cmds;
+    private LoopProfile profile;
+
+    public ForCommand(int line, Command init, Expr cond, Command update, Command cmds) {
+        super(line);
+        this.init = init;
+        this.cond = cond;
+        this.update = update;
+        this.cmds = cmds;
+        this.profile = new LoopProfile(this);
+    }
+
+    public Command getInit() {
+        return init;
+    }
+
+    public Expr getCond() {
+        return cond;
+    }
+
+    public Command getUpdate() {
+        return update;
+    }
+
+    public Command getBody() {
+        return cmds;
+    }
+
+    @Override
+    public void execute(Memory memory) {
+        if (init != null)
+            init.execute(memory);
+
+        if (profile.enter(memory))
+            return;
+
+        while (cond == null || Utils.eval(cond.expr(memory))) {
+            cmds.execute(memory);
+
+            if (update != null)
+                update.execute(memory);
+
+            if (profile.backEdge(memory))
+                return;
+        }
+    }
+
+}
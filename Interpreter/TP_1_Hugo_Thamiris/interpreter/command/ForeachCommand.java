@@ -0,0 +1,62 @@
+package interpreter.command;
+
+import interpreter.expr.Expr;
+import interpreter.expr.Variable;
+import interpreter.util.Memory;
+import interpreter.util.Utils;
+import interpreter.value.ArrayValue;
+import interpreter.value.Value;
+
+// foreach ([def] name in expr) body, over the items of a list. With def
+// the variable belongs to the loop and is not visible after it.
+public class ForeachCommand extends Command {
+
+    private Variable var;
+    private boolean declare;
+    private Expr expr;
+    private Command cmds;
+
+    public ForeachCommand(int line, Variable var, boolean declare, Expr expr, Command cmds) {
+        super(line);
+        this.var = var;
+        this.declare = declare;
+        this.expr = expr;
+        this.cmds = cmds;
+    }
+
+    public Variable getVariable() {
+        return var;
+    }
+
+    public boolean isDeclare() {
+        return declare;
+    }
+
+    public Expr getExpr() {
+        return expr;
+    }
+
+    public Command getBody() {
+        return cmds;
+    }
+
+    @Override
+    public void execute(Memory memory) {
+        Value<?> value = expr.expr(memory);
+        if (!(value instanceof ArrayValue))
+            Utils.abort(getLine());
+
+        ArrayValue list = (ArrayValue) value;
+        for (int i = 0; i < list.size(); i++) {
+            // The body may store something else in the list, so the
+            // storage is checked on every turn.
+            if (list.isInt())
+                var.setInt(memory, list.getInt(i));
+            else
+                var.setValue(memory, list.get(i));
+
+            cmds.execute(memory);
+        }
+    }
+
+}
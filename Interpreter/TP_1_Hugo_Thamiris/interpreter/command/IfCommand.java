@@ -0,0 +1,41 @@
+package interpreter.command;
+
+import interpreter.expr.Expr;
+import interpreter.util.Memory;
+import interpreter.util.Utils;
+
+public class IfCommand extends Command {
+
+    private Expr cond;
+    private Command thenCmds;
+    private Command elseCmds;
+
+    public IfCommand(int line, Expr cond, Command thenCmds, Command elseCmds) {
+        super(line);
+        this.cond = cond;
+        this.thenCmds = thenCmds;
+        this.elseCmds = elseCmds;
+    }
+
+    public Expr getCond() {
+        return cond;
+    }
+
+    public Command getThen() {
+        return thenCmds;
+    }
+
+    public Command getElse() {
+        return elseCmds;
+    }
+
+    @Override
+    public void execute(Memory memory) {
+        if (Utils.eval(cond.expr(memory))) {
+            thenCmds.execute(memory);
+        } else if (elseCmds != null) {
+            elseCmds.execute(memory);
+        }
+    }
+
+}
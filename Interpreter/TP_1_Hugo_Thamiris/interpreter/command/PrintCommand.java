@@ -0,0 +1,31 @@
+package interpreter.command;
+
+import interpreter.expr.Expr;
+import interpreter.util.Memory;
+import interpreter.util.Utils;
+
+public class PrintCommand extends Command {
+
+    private Expr expr;
+    private boolean newline;
+
+    public PrintCommand(int line, Expr expr, boolean newline) {
+        super(line);
+        this.expr = expr;
+        this.newline = newline;
+    }
+
+    public Expr getExpr() {
+        return expr;
+    }
+
+    public boolean isNewline() {
+        return newline;
+    }
+
+    @Override
+    public void execute(Memory memory) {
+        Utils.print(expr.expr(memory), newline);
+    }
+
+}
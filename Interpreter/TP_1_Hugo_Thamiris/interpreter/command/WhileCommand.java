@@ -0,0 +1,41 @@
+package interpreter.command;
+
+import interpreter.expr.Expr;
+import interpreter.jit.LoopProfile;
+import interpreter.util.Memory;
+import interpreter.util.Utils;
+
+public class WhileCommand extends Command {
+
+    private Expr cond;
+    private Command cmds;
+    private LoopProfile profile;
+
+    public WhileCommand(int line, Expr cond, Command cmds) {
+        super(line);
+        this.cond = cond;
+        this.cmds = cmds;
+        this.profile = new LoopProfile(this);
+    }
+
+    public Expr getCond() {
+        return cond;
+    }
+
+    public Command getBody() {
+        return cmds;
+    }
+
+    @Override
+    public void execute(Memory memory) {
+        if (profile.enter(memory))
+            return;
+
+        while (Utils.eval(cond.expr(memory))) {
+            cmds.execute(memory);
+            if (profile.backEdge(memory))
+                return;
+        }
+    }
+
+}
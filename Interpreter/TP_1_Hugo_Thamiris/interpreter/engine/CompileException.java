@@ -0,0 +1,34 @@
+package interpreter.engine;
+
+import java.util.List;
+
+import interpreter.util.Diagnostic;
+
+// Thrown by MgEngine.compile for a script with errors; carries all of
+// them, one per line of the message.
+public class CompileException extends RuntimeException {
+
+    private final List<Diagnostic> errors;
+
+    public CompileException(List<Diagnostic> errors) {
+        super(message(errors));
+        this.errors = errors;
+    }
+
+    public List<Diagnostic> getErrors() {
+        return errors;
+    }
+
+    private static String message(List<Diagnostic> errors) {
+        StringBuilder sb = new StringBuilder();
+        for (Diagnostic error : errors) {
+            if (sb.length() > 0)
+                sb.append('\n');
+
+            sb.append(error);
+        }
+
+        return sb.toString();
+    }
+
+}
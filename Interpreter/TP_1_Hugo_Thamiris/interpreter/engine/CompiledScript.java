@@ -0,0 +1,97 @@
+package interpreter.engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import interpreter.command.Command;
+import interpreter.expr.Variable;
+import interpreter.util.Memory;
+import interpreter.util.Output;
+import interpreter.value.ArrayValue;
+import interpreter.value.MapValue;
+import interpreter.value.Value;
+
+// A script compiled by MgEngine, ready to be run again and again. Each
+// run gets a frame of its own, so runs on different threads share
+// nothing but the program itself. A list or map given as a binding is
+// copied in, in O(1), so a script setting its items changes it neither
+// for the caller nor for other runs; lists and maps nested inside it
+// are still shared.
+public class CompiledScript {
+
+    private final Command program;
+    private final int frameSize;
+
+    // The first use of each free variable, which holds its slot.
+    private final Map<String, Variable> free;
+
+    CompiledScript(Command program, int frameSize, Map<String, Variable> free) {
+        this.program = program;
+        this.frameSize = frameSize;
+        this.free = free;
+    }
+
+    // The names whose values the bindings must supply.
+    public Set<String> getFreeVariables() {
+        return Collections.unmodifiableSet(free.keySet());
+    }
+
+    // Runs the script with no bindings, printing to standard output.
+    public Map<String, Value<?>> eval() {
+        return eval(Collections.<String, Value<?>>emptyMap());
+    }
+
+    public Map<String, Value<?>> eval(Map<String, ? extends Value<?>> bindings) {
+        return eval(bindings, null);
+    }
+
+    // Runs the script, printing to out, or to standard output if out is
+    // null. A free variable missing from the bindings starts as null, as
+    // after a def without a value. Returns the free variables as the
+    // script left them; the bindings are not changed. An error of the
+    // running script is thrown as an InterpreterException.
+    public Map<String, Value<?>> eval(Map<String, ? extends Value<?>> bindings, Writer out) {
+        Memory memory = new Memory(frameSize);
+        for (Map.Entry<String, Variable> var : free.entrySet())
+            memory.write(var.getValue().getSlot(), copy(bindings.get(var.getKey())));
+
+        Writer previous = Output.use(out);
+        try {
+            program.execute(memory);
+        } finally {
+            Output.use(previous);
+            if (out != null)
+                flush(out);
+        }
+
+        Map<String, Value<?>> result = new HashMap<String, Value<?>>();
+        for (Map.Entry<String, Variable> var : free.entrySet())
+            result.put(var.getKey(), memory.read(var.getValue().getSlot()));
+
+        return result;
+    }
+
+    private static Value<?> copy(Value<?> value) {
+        if (value instanceof ArrayValue)
+            return ((ArrayValue) value).copy();
+
+        if (value instanceof MapValue)
+            return ((MapValue) value).copy();
+
+        return value;
+    }
+
+    private static void flush(Writer out) {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+package interpreter.engine;
+
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Map;
+
+import interpreter.command.Command;
+import interpreter.opt.Optimizer;
+import interpreter.util.Diagnostics;
+import interpreter.value.Value;
+import lexical.LexicalAnalysis;
+import lexical.Source;
+import syntatic.SyntaticAnalysis;
+
+// Runs miniGroovy scripts from inside a Java program, in the manner of
+// javax.script: a script is compiled once into a CompiledScript, which
+// can then be run any number of times, from any number of threads, in
+// the same warm JVM. A name a script uses without a def is a free
+// variable, whose value comes from the bindings given to each run.
+//
+//     MgEngine engine = new MgEngine();
+//     CompiledScript script = engine.compile("println(greeting + name)");
+//     script.eval(Map.of("greeting", new TextValue("Hi, "),
+//         "name", new TextValue("Ana")));
+//
+// The engine keeps no state of its own, so one engine can compile for
+// every thread.
+public class MgEngine {
+
+    private final boolean optimize;
+
+    public MgEngine() {
+        this(true);
+    }
+
+    // Without optimizing, scripts run as parsed, as with mgi --no-opt.
+    public MgEngine(boolean optimize) {
+        this.optimize = optimize;
+    }
+
+    public CompiledScript compile(CharSequence source) {
+        return compile(new LexicalAnalysis(Source.fromText(source)));
+    }
+
+    public CompiledScript compile(Reader source) {
+        return compile(new LexicalAnalysis(source));
+    }
+
+    // Compiles and runs a script once, printing to out.
+    public Map<String, Value<?>> eval(CharSequence source,
+            Map<String, ? extends Value<?>> bindings, Writer out) {
+        return compile(source).eval(bindings, out);
+    }
+
+    private CompiledScript compile(LexicalAnalysis lex) {
+        try (LexicalAnalysis l = lex) {
+            SyntaticAnalysis s = new SyntaticAnalysis(l, new Diagnostics());
+            s.allowFreeVariables();
+
+            Command program = s.start();
+            if (s.diagnostics().hasErrors())
+                throw new CompileException(new ArrayList<>(s.diagnostics().getErrors()));
+
+            if (optimize)
+                program = new Optimizer().optimize(program);
+
+            return new CompiledScript(program, s.frameSize(), s.freeVariables());
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package interpreter.expr;
+
+import interpreter.util.Memory;
+import interpreter.util.Utils;
+import interpreter.value.ArrayValue;
+import interpreter.value.MapValue;
+import interpreter.value.NumberValue;
+import interpreter.value.TextValue;
+import interpreter.value.Value;
+
+// base[index] and base.name; the latter is parsed as an index by a
+// constant text.
+public class AccessExpr extends SetExpr {
+
+    private Expr base;
+    private Expr index;
+
+    public AccessExpr(int line, Expr base, Expr index) {
+        super(line);
+        this.base = base;
+        this.index = index;
+    }
+
+    public Expr getBase() {
+        return base;
+    }
+
+    public Expr getIndex() {
+        return index;
+    }
+
+    @Override
+    public Value<?> expr(Memory memory) {
+        return get(getLine(), base.expr(memory), index.expr(memory));
+    }
+
+    @Override
+    public void setValue(Memory memory, Value<?> value) {
+        set(getLine(), base.expr(memory), index.expr(memory), value);
+    }
+
+    // Lists accept negative indexes counted from the end; reading past
+    // either end gives null.
+    public static Value<?> get(int line, Value<?> base, Value<?> index) {
+        if (base instanceof ArrayValue) {
+            return item((ArrayValue) base, number(line, index));
+        } else if (base instanceof MapValue) {
+            return ((MapValue) base).get(Utils.text(index));
+        } else if (base instanceof TextValue) {
+            String text = ((TextValue) base).value();
+            int i = position(line, text.length(), index);
+            return i >= 0 && i < text.length() ?
+                new TextValue(text.substring(i, i + 1)) : null;
+        }
+
+        Utils.abort(line);
+        return null;
+    }
+
+    // Writing past the end of a list pads it with nulls.
+    public static void set(int line, Value<?> base, Value<?> index, Value<?> value) {
+        if (base instanceof ArrayValue) {
+            setItem(line, (ArrayValue) base, number(line, index), value);
+        } else if (base instanceof MapValue) {
+            ((MapValue) base).put(Utils.text(index), value);
+        } else {
+            Utils.abort(line);
+        }
+    }
+
+    // The list cases with the index already known to be an int.
+    public static Value<?> item(ArrayValue list, int index) {
+        int i = index < 0 ? list.size() + index : index;
+        return i >= 0 && i < list.size() ? list.get(i) : null;
+    }
+
+    public static void setItem(int line, ArrayValue list, int index, Value<?> value) {
+        int i = index < 0 ? list.size() + index : index;
+        if (i < 0)
+            Utils.abort(line);
+
+        if (i == list.size()) {
+            list.add(value);
+            return;
+        }
+
+        while (list.size() <= i)
+            list.add(null);
+
+        list.set(i, value);
+    }
+
+    private static int number(int line, Value<?> index) {
+        if (!(index instanceof NumberValue))
+            Utils.abort(line);
+
+        return ((NumberValue) index).intValue();
+    }
+
+    private static int position(int line, int size, Value<?> index) {
+        int i = number(line, index);
+        return i < 0 ? size + i : i;
+    }
+
+}
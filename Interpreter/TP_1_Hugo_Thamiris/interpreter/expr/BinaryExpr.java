@@ -0,0 +1,332 @@
+package interpreter.expr;
+
+import java.util.Objects;
+
+import interpreter.util.Memory;
+import interpreter.util.Utils;
+import interpreter.value.ArrayValue;
+import interpreter.value.BooleanValue;
+import interpreter.value.MapValue;
+import interpreter.value.NumberValue;
+import interpreter.value.TextValue;
+import interpreter.value.Value;
+
+// The operator is resolved once: after the first evaluation the
+// expression runs a BinaryNode specialized for the operand types it saw
+// (IntAddNode, TextConcatNode, ...) and only goes back to the generic
+// dispatch if those types change.
+public class BinaryExpr extends Expr {
+
+    private Expr left;
+    private BinaryOp op;
+    private Expr right;
+    private BinaryNode node;
+
+    public BinaryExpr(int line, Expr left, BinaryOp op, Expr right) {
+        super(line);
+        this.left = left;
+        this.op = op;
+        this.right = right;
+    }
+
+    public Expr getLeft() {
+        return left;
+    }
+
+    public BinaryOp getOp() {
+        return op;
+    }
+
+    public Expr getRight() {
+        return right;
+    }
+
+    @Override
+    public Value<?> expr(Memory memory) {
+        switch (op) {
+            case AND:
+                return BooleanValue.of(Utils.eval(left.expr(memory)) && Utils.eval(right.expr(memory)));
+            case OR:
+                return BooleanValue.of(Utils.eval(left.expr(memory)) || Utils.eval(right.expr(memory)));
+            default:
+                return node == null ? specialize(memory) : node.expr(memory);
+        }
+    }
+
+    // First evaluation: records the operand types and picks the node
+    // that will run from now on.
+    private Value<?> specialize(Memory memory) {
+        Value<?> l = left.expr(memory);
+        Value<?> r = right.expr(memory);
+        boolean ints = l instanceof NumberValue && r instanceof NumberValue;
+
+        switch (op) {
+            case ADD:
+                if (ints)
+                    node = new IntAddNode(this);
+                else if (l instanceof TextValue)
+                    node = new TextConcatNode(this);
+                else
+                    node = new GenericNode(this);
+                break;
+            case SUB:
+                node = ints ? new IntSubNode(this) : new GenericNode(this);
+                break;
+            case MUL:
+                node = ints ? new IntMulNode(this) : new GenericNode(this);
+                break;
+            case LOWER:
+            case GREATER:
+            case LOWER_EQUAL:
+            case GREATER_EQUAL:
+            case EQUALS:
+            case NOT_EQUALS:
+                node = ints ? new IntCompareNode(this) : new GenericNode(this);
+                break;
+            default:
+                node = new GenericNode(this);
+                break;
+        }
+
+        return apply(op, getLine(), l, r);
+    }
+
+    // A specialized node saw operands it cannot handle.
+    Value<?> deoptimize(Value<?> l, Value<?> r) {
+        node = new GenericNode(this);
+        return apply(op, getLine(), l, r);
+    }
+
+    // The node currently in use, for diagnostics.
+    public String getSpecialization() {
+        return node == null ? "Uninitialized" : node.getClass().getSimpleName();
+    }
+
+    @Override
+    public boolean isInt(Memory memory) {
+        return isArith(op) && left.isInt(memory) && right.isInt(memory);
+    }
+
+    @Override
+    public int exprInt(Memory memory) {
+        if (isArith(op) && left.isInt(memory) && right.isInt(memory))
+            return arith(op, getLine(), left.exprInt(memory), right.exprInt(memory));
+
+        return super.exprInt(memory);
+    }
+
+    public static boolean isArith(BinaryOp op) {
+        switch (op) {
+            case ADD:
+            case SUB:
+            case MUL:
+            case DIV:
+            case MOD:
+            case POWER:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Comparisons and arithmetic between two ints; nothing is allocated
+    // unless the result is a number outside the cache.
+    static Value<?> applyInt(BinaryOp op, int line, int left, int right) {
+        switch (op) {
+            case LOWER:
+                return BooleanValue.of(left < right);
+            case GREATER:
+                return BooleanValue.of(left > right);
+            case LOWER_EQUAL:
+                return BooleanValue.of(left <= right);
+            case GREATER_EQUAL:
+                return BooleanValue.of(left >= right);
+            case EQUALS:
+                return BooleanValue.of(left == right);
+            case NOT_EQUALS:
+                return BooleanValue.of(left != right);
+            default:
+                return NumberValue.of(arith(op, line, left, right));
+        }
+    }
+
+    // The meaning of every binary operator once both operands are known;
+    // also used by the compound assignments (+=, -=, ...).
+    public static Value<?> apply(BinaryOp op, int line, Value<?> left, Value<?> right) {
+        switch (op) {
+            case AND:
+                return BooleanValue.of(Utils.eval(left) && Utils.eval(right));
+            case OR:
+                return BooleanValue.of(Utils.eval(left) || Utils.eval(right));
+            case LOWER:
+                return BooleanValue.of(compare(line, left, right) < 0);
+            case GREATER:
+                return BooleanValue.of(compare(line, left, right) > 0);
+            case LOWER_EQUAL:
+                return BooleanValue.of(compare(line, left, right) <= 0);
+            case GREATER_EQUAL:
+                return BooleanValue.of(compare(line, left, right) >= 0);
+            case EQUALS:
+                return BooleanValue.of(Objects.equals(left, right));
+            case NOT_EQUALS:
+                return BooleanValue.of(!Objects.equals(left, right));
+            case CONTAINS:
+                return BooleanValue.of(contains(line, left, right));
+            case NOT_CONTAINS:
+                return BooleanValue.of(!contains(line, left, right));
+            case ADD:
+                return add(line, left, right);
+            case SUB:
+                return sub(line, left, right);
+            case MUL:
+                return mul(line, left, right);
+            case DIV:
+            case MOD:
+            case POWER:
+                return NumberValue.of(arith(op, line, number(line, left), number(line, right)));
+            default:
+                Utils.abort(line);
+                return null;
+        }
+    }
+
+    private static int compare(int line, Value<?> left, Value<?> right) {
+        if (left instanceof NumberValue && right instanceof NumberValue)
+            return Integer.compare(((NumberValue) left).intValue(), ((NumberValue) right).intValue());
+
+        if (left instanceof TextValue && right instanceof TextValue)
+            return ((TextValue) left).value().compareTo(((TextValue) right).value());
+
+        Utils.abort(line);
+        return 0;
+    }
+
+    private static boolean contains(int line, Value<?> item, Value<?> collection) {
+        if (collection instanceof ArrayValue)
+            return ((ArrayValue) collection).contains(item);
+
+        if (collection instanceof MapValue)
+            return ((MapValue) collection).containsKey(Utils.text(item));
+
+        if (collection instanceof TextValue && item instanceof TextValue)
+            return ((TextValue) collection).value().contains(((TextValue) item).value());
+
+        Utils.abort(line);
+        return false;
+    }
+
+    private static Value<?> add(int line, Value<?> left, Value<?> right) {
+        if (left instanceof NumberValue && right instanceof NumberValue) {
+            return NumberValue.of(((NumberValue) left).intValue() + ((NumberValue) right).intValue());
+        } else if (left instanceof TextValue) {
+            return ((TextValue) left).concat(Utils.text(right));
+        } else if (left instanceof ArrayValue) {
+            // The copy shares the items of left, so appending one item
+            // costs the same however long the list is.
+            ArrayValue list = ((ArrayValue) left).copy();
+            if (right instanceof ArrayValue) {
+                ArrayValue items = (ArrayValue) right;
+                for (int i = 0, n = items.size(); i < n; i++)
+                    list.add(items.get(i));
+            } else {
+                list.add(right);
+            }
+
+            return list;
+        } else if (left instanceof MapValue && right instanceof MapValue) {
+            MapValue map = ((MapValue) left).copy();
+            MapValue entries = (MapValue) right;
+            for (int pos = 0; pos < entries.positions(); pos++) {
+                if (entries.keyAt(pos) != null)
+                    map.put(entries.keyAt(pos), entries.valueAt(pos));
+            }
+
+            return map;
+        }
+
+        Utils.abort(line);
+        return null;
+    }
+
+    private static Value<?> sub(int line, Value<?> left, Value<?> right) {
+        if (left instanceof NumberValue && right instanceof NumberValue) {
+            return NumberValue.of(((NumberValue) left).intValue() - ((NumberValue) right).intValue());
+        } else if (left instanceof ArrayValue) {
+            ArrayValue items = (ArrayValue) left;
+            ArrayValue.Builder list = new ArrayValue.Builder();
+            for (int i = 0; i < items.size(); i++) {
+                Value<?> v = items.get(i);
+                if (right instanceof ArrayValue ? !((ArrayValue) right).contains(v) :
+                        !Objects.equals(v, right))
+                    list.add(v);
+            }
+
+            return list.build();
+        } else if (left instanceof MapValue) {
+            MapValue map = ((MapValue) left).copy();
+            map.remove(Utils.text(right));
+            return map;
+        }
+
+        Utils.abort(line);
+        return null;
+    }
+
+    private static Value<?> mul(int line, Value<?> left, Value<?> right) {
+        if (left instanceof TextValue && right instanceof NumberValue) {
+            int times = ((NumberValue) right).intValue();
+            if (times < 0)
+                Utils.abort(line);
+
+            return new TextValue(((TextValue) left).value().repeat(times));
+        }
+
+        return NumberValue.of(arith(BinaryOp.MUL, line, number(line, left), number(line, right)));
+    }
+
+    private static int number(int line, Value<?> value) {
+        if (!(value instanceof NumberValue))
+            Utils.abort(line);
+
+        return ((NumberValue) value).intValue();
+    }
+
+    public static int arith(BinaryOp op, int line, int left, int right) {
+        switch (op) {
+            case ADD:
+                return left + right;
+            case SUB:
+                return left - right;
+            case MUL:
+                return left * right;
+            case DIV:
+                if (right == 0)
+                    Utils.abort(line);
+
+                return left / right;
+            case MOD:
+                if (right == 0)
+                    Utils.abort(line);
+
+                return left % right;
+            case POWER:
+                if (right < 0)
+                    Utils.abort(line);
+
+                int result = 1;
+                while (right > 0) {
+                    if ((right & 1) != 0)
+                        result *= left;
+
+                    left *= left;
+                    right >>= 1;
+                }
+
+                return result;
+            default:
+                Utils.abort(line);
+                return 0;
+        }
+    }
+
+}
@@ -0,0 +1,29 @@
+package interpreter.expr;
+
+import interpreter.util.Memory;
+import interpreter.value.Value;
+
+// What a BinaryExpr currently runs. The expression starts without a node,
+// picks one from the operands of its first evaluation and falls back to
+// GenericNode for good when a specialized node meets other operands.
+abstract class BinaryNode {
+
+    protected final BinaryExpr owner;
+    protected final Expr left;
+    protected final Expr right;
+
+    protected BinaryNode(BinaryExpr owner) {
+        this.owner = owner;
+        this.left = owner.getLeft();
+        this.right = owner.getRight();
+    }
+
+    abstract Value<?> expr(Memory memory);
+
+    // The guard failed after both operands were evaluated; they must not
+    // be evaluated again.
+    protected Value<?> deoptimize(Value<?> l, Value<?> r) {
+        return owner.deoptimize(l, r);
+    }
+
+}
@@ -0,0 +1,20 @@
+package interpreter.expr;
+
+public enum BinaryOp {
+    AND,
+    OR,
+    LOWER,
+    GREATER,
+    LOWER_EQUAL,
+    GREATER_EQUAL,
+    EQUALS,
+    NOT_EQUALS,
+    CONTAINS,
+    NOT_CONTAINS,
+    ADD,
+    SUB,
+    MUL,
+    DIV,
+    MOD,
+    POWER
+}
@@ -0,0 +1,66 @@
+package interpreter.expr;
+
+import interpreter.util.Memory;
+import interpreter.util.Utils;
+import interpreter.value.BooleanValue;
+import interpreter.value.NumberValue;
+import interpreter.value.TextValue;
+import interpreter.value.Value;
+
+public class CastExpr extends Expr {
+
+    private Expr expr;
+    private CastOp op;
+
+    public CastExpr(int line, Expr expr, CastOp op) {
+        super(line);
+        this.expr = expr;
+        this.op = op;
+    }
+
+    public Expr getExpr() {
+        return expr;
+    }
+
+    public CastOp getOp() {
+        return op;
+    }
+
+    @Override
+    public Value<?> expr(Memory memory) {
+        return apply(op, getLine(), expr.expr(memory));
+    }
+
+    public static Value<?> apply(CastOp op, int line, Value<?> value) {
+        switch (op) {
+            case BOOLEAN:
+                return BooleanValue.of(Utils.eval(value));
+            case INTEGER:
+                if (value == null)
+                    return NumberValue.of(0);
+
+                if (value instanceof NumberValue)
+                    return value;
+
+                if (value instanceof BooleanValue)
+                    return NumberValue.of(((BooleanValue) value).value() ? 1 : 0);
+
+                if (value instanceof TextValue) {
+                    try {
+                        return NumberValue.of(Integer.parseInt(((TextValue) value).value().trim()));
+                    } catch (NumberFormatException e) {
+                        return NumberValue.of(0);
+                    }
+                }
+
+                Utils.abort(line);
+                return null;
+            case STRING:
+                return new TextValue(Utils.text(value));
+            default:
+                Utils.abort(line);
+                return null;
+        }
+    }
+
+}
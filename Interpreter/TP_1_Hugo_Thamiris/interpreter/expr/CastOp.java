@@ -0,0 +1,7 @@
+package interpreter.expr;
+
+public enum CastOp {
+    BOOLEAN,
+    INTEGER,
+    STRING
+}
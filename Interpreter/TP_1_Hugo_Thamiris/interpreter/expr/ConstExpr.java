@@ -0,0 +1,38 @@
+package interpreter.expr;
+
+import interpreter.util.Memory;
+import interpreter.value.NumberValue;
+import interpreter.value.Value;
+
+public class ConstExpr extends Expr {
+
+    private Value<?> value;
+
+    public ConstExpr(int line, Value<?> value) {
+        super(line);
+        this.value = value;
+    }
+
+    public Value<?> getValue() {
+        return value;
+    }
+
+    @Override
+    public Value<?> expr(Memory memory) {
+        return value;
+    }
+
+    @Override
+    public boolean isInt(Memory memory) {
+        return value instanceof NumberValue;
+    }
+
+    @Override
+    public int exprInt(Memory memory) {
+        if (value instanceof NumberValue)
+            return ((NumberValue) value).intValue();
+
+        return super.exprInt(memory);
+    }
+
+}
@@ -1,5 +1,8 @@
 package interpreter.expr;
 
+import interpreter.util.Memory;
+import interpreter.util.Utils;
+import interpreter.value.NumberValue;
 import interpreter.value.Value;
 
 public abstract class Expr {
@@ -14,6 +17,21 @@ public abstract class Expr {
         return line;
     }
 
-    public abstract Value<?> expr();
+    public abstract Value<?> expr(Memory memory);
+
+    // Whether the expression would give a number if evaluated now. Only
+    // expressions without side effects answer true, and then the caller
+    // may use exprInt() instead of expr() and skip the boxing.
+    public boolean isInt(Memory memory) {
+        return false;
+    }
+
+    public int exprInt(Memory memory) {
+        Value<?> value = expr(memory);
+        if (!(value instanceof NumberValue))
+            Utils.abort(line);
+
+        return ((NumberValue) value).intValue();
+    }
 
 }
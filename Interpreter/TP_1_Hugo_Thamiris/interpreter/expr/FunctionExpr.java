@@ -0,0 +1,97 @@
+package interpreter.expr;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+import interpreter.util.Memory;
+import interpreter.util.Output;
+import interpreter.util.Utils;
+import interpreter.value.ArrayValue;
+import interpreter.value.BooleanValue;
+import interpreter.value.MapValue;
+import interpreter.value.NumberValue;
+import interpreter.value.TextValue;
+import interpreter.value.Value;
+
+public class FunctionExpr extends Expr {
+
+    private static BufferedReader input =
+        new BufferedReader(new InputStreamReader(System.in));
+
+    private FunctionOp op;
+    private Expr expr;
+
+    public FunctionExpr(int line, FunctionOp op, Expr expr) {
+        super(line);
+        this.op = op;
+        this.expr = expr;
+    }
+
+    public FunctionOp getOp() {
+        return op;
+    }
+
+    public Expr getExpr() {
+        return expr;
+    }
+
+    @Override
+    public Value<?> expr(Memory memory) {
+        return apply(op, getLine(), expr.expr(memory));
+    }
+
+    public static Value<?> apply(FunctionOp op, int line, Value<?> value) {
+        switch (op) {
+            case READ:
+                return read(line, value);
+            case EMPTY:
+                return BooleanValue.of(size(line, value) == 0);
+            case SIZE:
+                return NumberValue.of(size(line, value));
+            case KEYS:
+                if (!(value instanceof MapValue))
+                    Utils.abort(line);
+
+                return ArrayValue.keysOf((MapValue) value);
+            case VALUES:
+                if (!(value instanceof MapValue))
+                    Utils.abort(line);
+
+                return ArrayValue.valuesOf((MapValue) value);
+            default:
+                Utils.abort(line);
+                return null;
+        }
+    }
+
+    // Shows the argument as a prompt and reads one line; null at the end
+    // of the input.
+    private static Value<?> read(int line, Value<?> prompt) {
+        Utils.print(prompt, false);
+        Output.flush();
+
+        try {
+            String text = input.readLine();
+            return text == null ? null : new TextValue(text);
+        } catch (IOException e) {
+            Utils.abort(line);
+            return null;
+        }
+    }
+
+    private static int size(int line, Value<?> value) {
+        if (value instanceof TextValue)
+            return ((TextValue) value).length();
+
+        if (value instanceof ArrayValue)
+            return ((ArrayValue) value).size();
+
+        if (value instanceof MapValue)
+            return ((MapValue) value).size();
+
+        Utils.abort(line);
+        return 0;
+    }
+
+}
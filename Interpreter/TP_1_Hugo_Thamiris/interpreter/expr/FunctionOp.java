@@ -0,0 +1,9 @@
+package interpreter.expr;
+
+public enum FunctionOp {
+    READ,
+    EMPTY,
+    SIZE,
+    KEYS,
+    VALUES
+}
@@ -0,0 +1,23 @@
+package interpreter.expr;
+
+import interpreter.util.Memory;
+import interpreter.value.Value;
+
+// Any operands; the full dispatch of BinaryExpr.apply.
+class GenericNode extends BinaryNode {
+
+    GenericNode(BinaryExpr owner) {
+        super(owner);
+    }
+
+    @Override
+    Value<?> expr(Memory memory) {
+        BinaryOp op = owner.getOp();
+        if (op != BinaryOp.CONTAINS && op != BinaryOp.NOT_CONTAINS &&
+                left.isInt(memory) && right.isInt(memory))
+            return BinaryExpr.applyInt(op, owner.getLine(), left.exprInt(memory), right.exprInt(memory));
+
+        return BinaryExpr.apply(op, owner.getLine(), left.expr(memory), right.expr(memory));
+    }
+
+}
@@ -0,0 +1,14 @@
+package interpreter.expr;
+
+class IntAddNode extends IntArithNode {
+
+    IntAddNode(BinaryExpr owner) {
+        super(owner);
+    }
+
+    @Override
+    int compute(int l, int r) {
+        return l + r;
+    }
+
+}
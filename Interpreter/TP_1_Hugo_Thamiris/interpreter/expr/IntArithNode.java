@@ -0,0 +1,29 @@
+package interpreter.expr;
+
+import interpreter.util.Memory;
+import interpreter.value.NumberValue;
+import interpreter.value.Value;
+
+// +, - or * between two numbers.
+abstract class IntArithNode extends BinaryNode {
+
+    protected IntArithNode(BinaryExpr owner) {
+        super(owner);
+    }
+
+    abstract int compute(int l, int r);
+
+    @Override
+    Value<?> expr(Memory memory) {
+        if (left.isInt(memory) && right.isInt(memory))
+            return NumberValue.of(compute(left.exprInt(memory), right.exprInt(memory)));
+
+        Value<?> l = left.expr(memory);
+        Value<?> r = right.expr(memory);
+        if (l instanceof NumberValue && r instanceof NumberValue)
+            return NumberValue.of(compute(((NumberValue) l).intValue(), ((NumberValue) r).intValue()));
+
+        return deoptimize(l, r);
+    }
+
+}
@@ -0,0 +1,82 @@
+package interpreter.expr;
+
+import interpreter.util.Memory;
+import interpreter.util.Utils;
+import interpreter.value.NumberValue;
+import interpreter.value.Value;
+
+// Arithmetic that can only end in an int: /, % and ** always, and +, -
+// and * when the left operand is known to be a number (a text or a list
+// on the right would be an error anyway). The parser builds these
+// instead of BinaryExpr so the operands are read with exprInt().
+public class IntBinaryExpr extends Expr {
+
+    private Expr left;
+    private BinaryOp op;
+    private Expr right;
+
+    public IntBinaryExpr(int line, Expr left, BinaryOp op, Expr right) {
+        super(line);
+        this.left = left;
+        this.op = op;
+        this.right = right;
+    }
+
+    public Expr getLeft() {
+        return left;
+    }
+
+    public BinaryOp getOp() {
+        return op;
+    }
+
+    public Expr getRight() {
+        return right;
+    }
+
+    @Override
+    public Value<?> expr(Memory memory) {
+        return NumberValue.of(exprInt(memory));
+    }
+
+    @Override
+    public boolean isInt(Memory memory) {
+        return left.isInt(memory) && right.isInt(memory);
+    }
+
+    @Override
+    public int exprInt(Memory memory) {
+        if (left.isInt(memory) && right.isInt(memory))
+            return BinaryExpr.arith(op, getLine(), left.exprInt(memory), right.exprInt(memory));
+
+        // Both sides are evaluated before the error, as in BinaryExpr.
+        Value<?> l = left.expr(memory);
+        Value<?> r = right.expr(memory);
+        if (!(l instanceof NumberValue) || !(r instanceof NumberValue))
+            Utils.abort(getLine());
+
+        return BinaryExpr.arith(op, getLine(),
+            ((NumberValue) l).intValue(), ((NumberValue) r).intValue());
+    }
+
+    // Whether an expression can only give an int (or stop the program).
+    public static boolean isIntType(Expr expr) {
+        if (expr instanceof ConstExpr)
+            return ((ConstExpr) expr).getValue() instanceof NumberValue;
+
+        if (expr instanceof IntBinaryExpr)
+            return true;
+
+        if (expr instanceof UnaryExpr)
+            return ((UnaryExpr) expr).getOp() == UnaryOp.NEG;
+
+        if (expr instanceof CastExpr)
+            return ((CastExpr) expr).getOp() == CastOp.INTEGER;
+
+        if (expr instanceof FunctionExpr)
+            return ((FunctionExpr) expr).getOp() == FunctionOp.SIZE;
+
+        return false;
+    }
+
+}
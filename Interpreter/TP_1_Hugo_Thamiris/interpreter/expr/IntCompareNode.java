@@ -0,0 +1,48 @@
+package interpreter.expr;
+
+import interpreter.util.Memory;
+import interpreter.value.BooleanValue;
+import interpreter.value.NumberValue;
+import interpreter.value.Value;
+
+// <, >, <=, >=, == or != between two numbers.
+class IntCompareNode extends BinaryNode {
+
+    private BinaryOp op;
+
+    IntCompareNode(BinaryExpr owner) {
+        super(owner);
+        this.op = owner.getOp();
+    }
+
+    @Override
+    Value<?> expr(Memory memory) {
+        if (left.isInt(memory) && right.isInt(memory))
+            return BooleanValue.of(test(left.exprInt(memory), right.exprInt(memory)));
+
+        Value<?> l = left.expr(memory);
+        Value<?> r = right.expr(memory);
+        if (l instanceof NumberValue && r instanceof NumberValue)
+            return BooleanValue.of(test(((NumberValue) l).intValue(), ((NumberValue) r).intValue()));
+
+        return deoptimize(l, r);
+    }
+
+    private boolean test(int l, int r) {
+        switch (op) {
+            case LOWER:
+                return l < r;
+            case GREATER:
+                return l > r;
+            case LOWER_EQUAL:
+                return l <= r;
+            case GREATER_EQUAL:
+                return l >= r;
+            case EQUALS:
+                return l == r;
+            default:
+                return l != r;
+        }
+    }
+
+}
@@ -0,0 +1,14 @@
+package interpreter.expr;
+
+class IntMulNode extends IntArithNode {
+
+    IntMulNode(BinaryExpr owner) {
+        super(owner);
+    }
+
+    @Override
+    int compute(int l, int r) {
+        return l * r;
+    }
+
+}
@@ -0,0 +1,14 @@
+package interpreter.expr;
+
+class IntSubNode extends IntArithNode {
+
+    IntSubNode(BinaryExpr owner) {
+        super(owner);
+    }
+
+    @Override
+    int compute(int l, int r) {
+        return l - r;
+    }
+
+}
@@ -0,0 +1,36 @@
+package interpreter.expr;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import interpreter.util.Memory;
+import interpreter.value.ArrayValue;
+import interpreter.value.Value;
+
+public class ListExpr extends Expr {
+
+    private List<Expr> items;
+
+    public ListExpr(int line) {
+        super(line);
+        this.items = new ArrayList<Expr>();
+    }
+
+    public void addItem(Expr item) {
+        items.add(item);
+    }
+
+    public List<Expr> getItems() {
+        return items;
+    }
+
+    @Override
+    public Value<?> expr(Memory memory) {
+        ArrayValue.Builder list = new ArrayValue.Builder();
+        for (int i = 0; i < items.size(); i++)
+            list.add(items.get(i).expr(memory));
+
+        return list.build();
+    }
+
+}
@@ -0,0 +1,45 @@
+package interpreter.expr;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import interpreter.util.Memory;
+import interpreter.value.MapValue;
+import interpreter.value.Value;
+
+public class MapExpr extends Expr {
+
+    private List<String> names;
+    private List<Expr> items;
+
+    public MapExpr(int line) {
+        super(line);
+        this.names = new ArrayList<String>();
+        this.items = new ArrayList<Expr>();
+    }
+
+    public void addItem(String name, Expr item) {
+        names.add(name);
+        items.add(item);
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    public List<Expr> getItems() {
+        return items;
+    }
+
+    // Every item is evaluated, left to right, even when its name is
+    // repeated; the last one with a name gives its value.
+    @Override
+    public Value<?> expr(Memory memory) {
+        MapValue.Builder map = new MapValue.Builder();
+        for (int i = 0; i < items.size(); i++)
+            map.put(names.get(i), items.get(i).expr(memory));
+
+        return map.build();
+    }
+
+}
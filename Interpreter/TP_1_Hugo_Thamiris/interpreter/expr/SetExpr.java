@@ -0,0 +1,20 @@
+package interpreter.expr;
+
+import interpreter.util.Memory;
+import interpreter.value.NumberValue;
+import interpreter.value.Value;
+
+// An expression that can appear on the left side of an assignment.
+public abstract class SetExpr extends Expr {
+
+    protected SetExpr(int line) {
+        super(line);
+    }
+
+    public abstract void setValue(Memory memory, Value<?> value);
+
+    public void setInt(Memory memory, int value) {
+        setValue(memory, NumberValue.of(value));
+    }
+
+}
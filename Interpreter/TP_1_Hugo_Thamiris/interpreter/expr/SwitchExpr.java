@@ -0,0 +1,63 @@
+package interpreter.expr;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import interpreter.util.Memory;
+import interpreter.value.Value;
+
+public class SwitchExpr extends Expr {
+
+    private Expr expr;
+    private List<Expr> keys;
+    private List<Expr> values;
+    private Expr otherwise;
+
+    public SwitchExpr(int line, Expr expr) {
+        super(line);
+        this.expr = expr;
+        this.keys = new ArrayList<Expr>();
+        this.values = new ArrayList<Expr>();
+        this.otherwise = null;
+    }
+
+    public void addCase(Expr key, Expr value) {
+        keys.add(key);
+        values.add(value);
+    }
+
+    public void setDefault(Expr otherwise) {
+        this.otherwise = otherwise;
+    }
+
+    public Expr getExpr() {
+        return expr;
+    }
+
+    public List<Expr> getKeys() {
+        return keys;
+    }
+
+    public List<Expr> getValues() {
+        return values;
+    }
+
+    public Expr getDefault() {
+        return otherwise;
+    }
+
+    // The first case whose key equals the value is taken; without a match
+    // and without a default the result is null.
+    @Override
+    public Value<?> expr(Memory memory) {
+        Value<?> value = expr.expr(memory);
+        for (int i = 0; i < keys.size(); i++) {
+            if (Objects.equals(value, keys.get(i).expr(memory)))
+                return values.get(i).expr(memory);
+        }
+
+        return otherwise == null ? null : otherwise.expr(memory);
+    }
+
+}
@@ -0,0 +1,25 @@
+package interpreter.expr;
+
+import interpreter.util.Memory;
+import interpreter.util.Utils;
+import interpreter.value.TextValue;
+import interpreter.value.Value;
+
+// text + anything.
+class TextConcatNode extends BinaryNode {
+
+    TextConcatNode(BinaryExpr owner) {
+        super(owner);
+    }
+
+    @Override
+    Value<?> expr(Memory memory) {
+        Value<?> l = left.expr(memory);
+        Value<?> r = right.expr(memory);
+        if (l instanceof TextValue)
+            return ((TextValue) l).concat(Utils.text(r));
+
+        return deoptimize(l, r);
+    }
+
+}
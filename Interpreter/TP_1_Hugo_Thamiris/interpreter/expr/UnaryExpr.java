@@ -0,0 +1,61 @@
+package interpreter.expr;
+
+import interpreter.util.Memory;
+import interpreter.util.Utils;
+import interpreter.value.BooleanValue;
+import interpreter.value.NumberValue;
+import interpreter.value.Value;
+
+public class UnaryExpr extends Expr {
+
+    private UnaryOp op;
+    private Expr expr;
+
+    public UnaryExpr(int line, UnaryOp op, Expr expr) {
+        super(line);
+        this.op = op;
+        this.expr = expr;
+    }
+
+    public UnaryOp getOp() {
+        return op;
+    }
+
+    public Expr getExpr() {
+        return expr;
+    }
+
+    @Override
+    public Value<?> expr(Memory memory) {
+        return apply(op, getLine(), expr.expr(memory));
+    }
+
+    @Override
+    public boolean isInt(Memory memory) {
+        return op == UnaryOp.NEG && expr.isInt(memory);
+    }
+
+    @Override
+    public int exprInt(Memory memory) {
+        if (op == UnaryOp.NEG && expr.isInt(memory))
+            return -expr.exprInt(memory);
+
+        return super.exprInt(memory);
+    }
+
+    public static Value<?> apply(UnaryOp op, int line, Value<?> value) {
+        switch (op) {
+            case NOT:
+                return BooleanValue.of(!Utils.eval(value));
+            case NEG:
+                if (!(value instanceof NumberValue))
+                    Utils.abort(line);
+
+                return NumberValue.of(-((NumberValue) value).intValue());
+            default:
+                Utils.abort(line);
+                return null;
+        }
+    }
+
+}
@@ -0,0 +1,6 @@
+package interpreter.expr;
+
+public enum UnaryOp {
+    NOT,
+    NEG
+}
@@ -0,0 +1,59 @@
+package interpreter.expr;
+
+import interpreter.util.Memory;
+import interpreter.value.Value;
+
+public class Variable extends SetExpr {
+
+    private String name;
+    private int slot;
+
+    public Variable(int line, String name, int slot) {
+        super(line);
+        this.name = name;
+        this.slot = slot;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    // Only for the resolver, which places a free variable once it has
+    // seen the whole program.
+    public void setSlot(int slot) {
+        this.slot = slot;
+    }
+
+    @Override
+    public Value<?> expr(Memory memory) {
+        return memory.read(slot);
+    }
+
+    @Override
+    public void setValue(Memory memory, Value<?> value) {
+        memory.write(slot, value);
+    }
+
+    @Override
+    public boolean isInt(Memory memory) {
+        return memory.isInt(slot);
+    }
+
+    @Override
+    public int exprInt(Memory memory) {
+        if (memory.isInt(slot))
+            return memory.readInt(slot);
+
+        return super.exprInt(memory);
+    }
+
+    @Override
+    public void setInt(Memory memory, int value) {
+        memory.writeInt(slot, value);
+    }
+
+}
@@ -0,0 +1,183 @@
+package interpreter.jit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// The body of one method. Every emit names how the instruction changes
+// the operand stack, so the maximum depth comes out of the writing;
+// branches to labels not yet placed are patched when the label is.
+final class Code {
+
+    static final int ICONST_0 = 0x03;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC = 0x12;
+    static final int LDC_W = 0x13;
+    static final int ILOAD = 0x15;
+    static final int ALOAD = 0x19;
+    static final int ISTORE = 0x36;
+    static final int POP = 0x57;
+    static final int IADD = 0x60;
+    static final int ISUB = 0x64;
+    static final int IMUL = 0x68;
+    static final int INEG = 0x74;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9a;
+    static final int IF_ICMPEQ = 0x9f;
+    static final int IF_ICMPNE = 0xa0;
+    static final int IF_ICMPLT = 0xa1;
+    static final int IF_ICMPGE = 0xa2;
+    static final int IF_ICMPGT = 0xa3;
+    static final int IF_ICMPLE = 0xa4;
+    static final int GOTO = 0xa7;
+    static final int RETURN = 0xb1;
+    static final int GETSTATIC = 0xb2;
+    static final int INVOKEVIRTUAL = 0xb6;
+    static final int INVOKESPECIAL = 0xb7;
+    static final int INVOKESTATIC = 0xb8;
+
+    private final ClassFile file;
+    private byte[] code = new byte[256];
+    private int size;
+    private int stack;
+    private int maxStack;
+    private int maxLocals;
+
+    Code(ClassFile file, int locals) {
+        this.file = file;
+        this.maxLocals = locals;
+    }
+
+    // An instruction without operands.
+    void op(int opcode, int effect) {
+        u1(opcode);
+        adjust(effect);
+    }
+
+    void pushInt(int value) {
+        if (value >= -1 && value <= 5) {
+            u1(ICONST_0 + value);
+        } else if (value == (byte) value) {
+            u1(BIPUSH);
+            u1(value);
+        } else if (value == (short) value) {
+            u1(SIPUSH);
+            u2(value);
+        } else {
+            int index = file.integer(value);
+            if (index < 256) {
+                u1(LDC);
+                u1(index);
+            } else {
+                u1(LDC_W);
+                u2(index);
+            }
+        }
+
+        adjust(1);
+    }
+
+    void load(int opcode, int local) {
+        local(opcode, local);
+        adjust(1);
+    }
+
+    void store(int opcode, int local) {
+        local(opcode, local);
+        adjust(-1);
+    }
+
+    private void local(int opcode, int local) {
+        if (local > 255)
+            throw new IllegalStateException("too many locals");
+
+        u1(opcode);
+        u1(local);
+        maxLocals = Math.max(maxLocals, local + 1);
+    }
+
+    // getstatic or one of the invokes; the pool entry is already made.
+    void member(int opcode, int index, int effect) {
+        u1(opcode);
+        u2(index);
+        adjust(effect);
+    }
+
+    // The conditional branches pop their operands: one for IFEQ and IFNE,
+    // two for the IF_ICMP family.
+    void jump(int opcode, Label target) {
+        int at = size;
+        u1(opcode);
+        if (target.position >= 0) {
+            u2(offset(at, target.position));
+        } else {
+            target.fixups.add(at);
+            u2(0);
+        }
+
+        if (opcode == IFEQ || opcode == IFNE)
+            adjust(-1);
+        else if (opcode != GOTO)
+            adjust(-2);
+    }
+
+    void place(Label label) {
+        label.position = size;
+        for (int at : label.fixups) {
+            int offset = offset(at, size);
+            code[at + 1] = (byte) (offset >> 8);
+            code[at + 2] = (byte) offset;
+        }
+
+        label.fixups.clear();
+    }
+
+    private static int offset(int from, int to) {
+        int offset = to - from;
+        if (offset != (short) offset)
+            throw new IllegalStateException("method too large");
+
+        return offset;
+    }
+
+    private void adjust(int effect) {
+        stack += effect;
+        maxStack = Math.max(maxStack, stack);
+    }
+
+    private void u1(int value) {
+        if (size == code.length)
+            code = Arrays.copyOf(code, size * 2);
+
+        code[size++] = (byte) value;
+    }
+
+    private void u2(int value) {
+        u1(value >> 8);
+        u1(value);
+    }
+
+    int maxStack() {
+        return maxStack;
+    }
+
+    int maxLocals() {
+        return maxLocals;
+    }
+
+    byte[] bytes() {
+        if (size > 65535)
+            throw new IllegalStateException("method too large");
+
+        return Arrays.copyOf(code, size);
+    }
+
+    static final class Label {
+
+        private int position = -1;
+        private final List<Integer> fixups = new ArrayList<Integer>();
+
+    }
+
+}
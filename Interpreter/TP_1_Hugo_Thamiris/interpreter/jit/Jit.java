@@ -0,0 +1,58 @@
+package interpreter.jit;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import interpreter.util.Utils;
+import interpreter.value.NumberValue;
+
+// Settings of the loop compiler and the entry points of the code it
+// writes. Each compiled loop is a hidden class, so it can be unloaded
+// with the AST that owns it and HotSpot compiles it like any other.
+public class Jit {
+
+    public static final int DEFAULT_THRESHOLD = 1000;
+
+    private static int threshold = DEFAULT_THRESHOLD;
+    private static final AtomicInteger compiled = new AtomicInteger();
+
+    private Jit() {
+    }
+
+    // Back edges before a loop is compiled; 0 turns the compiler off.
+    public static int threshold() {
+        return threshold;
+    }
+
+    public static void setThreshold(int threshold) {
+        Jit.threshold = threshold;
+    }
+
+    // How many loops have been compiled so far.
+    public static int compiledLoops() {
+        return compiled.get();
+    }
+
+    // Loads the bytes LoopCompiler wrote as a new hidden class.
+    static LoopBody define(byte[] bytes) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            LoopBody body = (LoopBody) lookup.findConstructor(lookup.lookupClass(),
+                MethodType.methodType(void.class)).invoke();
+
+            compiled.incrementAndGet();
+            return body;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new LinkageError("cannot load compiled loop", e);
+        }
+    }
+
+    // print and println of an int.
+    public static void print(int value, boolean newline) {
+        Utils.print(NumberValue.of(value), newline);
+    }
+
+}
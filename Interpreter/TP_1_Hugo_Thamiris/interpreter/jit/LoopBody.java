@@ -0,0 +1,11 @@
+package interpreter.jit;
+
+import interpreter.util.Memory;
+
+// Implemented by the classes LoopCompiler writes. run() takes the loop
+// from its condition to its end, leaving the variables in the frame.
+public interface LoopBody {
+
+    void run(Memory memory);
+
+}
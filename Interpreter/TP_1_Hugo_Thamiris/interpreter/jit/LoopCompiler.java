@@ -0,0 +1,418 @@
+package interpreter.jit;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import interpreter.command.AssignCommand;
+import interpreter.command.BlocksCommand;
+import interpreter.command.Command;
+import interpreter.command.DeclareCommand;
+import interpreter.command.ForCommand;
+import interpreter.command.IfCommand;
+import interpreter.command.PrintCommand;
+import interpreter.command.WhileCommand;
+import interpreter.expr.BinaryExpr;
+import interpreter.expr.BinaryOp;
+import interpreter.expr.CastExpr;
+import interpreter.expr.CastOp;
+import interpreter.expr.ConstExpr;
+import interpreter.expr.Expr;
+import interpreter.expr.IntBinaryExpr;
+import interpreter.expr.UnaryExpr;
+import interpreter.expr.UnaryOp;
+import interpreter.expr.Variable;
+import interpreter.value.BooleanValue;
+import interpreter.value.NumberValue;
+
+// Translates a while or for loop of the tree walker into the run()
+// method of a LoopBody class. Only loops over ints are taken: every
+// variable becomes an int local, every expression an int on the JVM
+// stack and every condition a branch. The loop is entered at its
+// condition, so the init part of a for has already run.
+//
+// The variables declared outside the loop are read from the frame when
+// the method starts and written back when the loop ends; they are the
+// guards, which must all hold ints for the compiled code to be entered.
+final class LoopCompiler {
+
+    static final String NAME = "interpreter/jit/Loop";
+
+    private static final String MEMORY = "interpreter/util/Memory";
+    private static final String BINARY_OP = "Linterpreter/expr/BinaryOp;";
+
+    private static final int FIRST_LOCAL = 2;
+
+    // slot -> JVM local, in the order the variables were met.
+    private final Map<Integer, Integer> locals = new LinkedHashMap<Integer, Integer>();
+    private final Set<Integer> declared = new HashSet<Integer>();
+
+    private ClassFile file;
+    private Code code;
+
+    // Whether the loop can be compiled; also collects its variables.
+    boolean accepts(Command loop) {
+        if (loop instanceof ForCommand) {
+            ForCommand f = (ForCommand) loop;
+            return (f.getCond() == null || isCond(f.getCond()))
+                && (f.getUpdate() == null || accept(f.getUpdate()))
+                && accept(f.getBody());
+        }
+
+        return loop instanceof WhileCommand && accept(loop);
+    }
+
+    // The slots the compiled code reads from the frame.
+    int[] guards() {
+        return locals.keySet().stream().filter(slot -> !declared.contains(slot))
+            .mapToInt(Integer::intValue).toArray();
+    }
+
+    byte[] compile(Command loop) {
+        file = new ClassFile(NAME, "java/lang/Object", "interpreter/jit/LoopBody");
+
+        code = new Code(file, 1);
+        code.load(Code.ALOAD, 0);
+        code.member(Code.INVOKESPECIAL, file.methodRef("java/lang/Object", "<init>", "()V"), -1);
+        code.op(Code.RETURN, 0);
+        file.addMethod(ClassFile.ACC_PUBLIC, "<init>", "()V", code);
+
+        code = new Code(file, FIRST_LOCAL);
+        int[] guards = guards();
+        for (int slot : guards) {
+            code.load(Code.ALOAD, 1);
+            code.pushInt(slot);
+            code.member(Code.INVOKEVIRTUAL, file.methodRef(MEMORY, "readInt", "(I)I"), -1);
+            code.store(Code.ISTORE, locals.get(slot));
+        }
+
+        // The verifier wants every local assigned before the loop.
+        for (int slot : declared) {
+            code.pushInt(0);
+            code.store(Code.ISTORE, locals.get(slot));
+        }
+
+        if (loop instanceof ForCommand) {
+            ForCommand f = (ForCommand) loop;
+            loop(f.getCond(), f.getBody(), f.getUpdate());
+        } else {
+            WhileCommand w = (WhileCommand) loop;
+            loop(w.getCond(), w.getBody(), null);
+        }
+
+        for (int slot : guards) {
+            code.load(Code.ALOAD, 1);
+            code.pushInt(slot);
+            code.load(Code.ILOAD, locals.get(slot));
+            code.member(Code.INVOKEVIRTUAL, file.methodRef(MEMORY, "writeInt", "(II)V"), -3);
+        }
+
+        code.op(Code.RETURN, 0);
+        file.addMethod(ClassFile.ACC_PUBLIC, "run", "(L" + MEMORY + ";)V", code);
+        return file.toByteArray();
+    }
+
+    // ---- What can be compiled
+
+    private boolean accept(Command cmd) {
+        if (cmd instanceof BlocksCommand) {
+            for (Command c : ((BlocksCommand) cmd).getCommands()) {
+                if (!accept(c))
+                    return false;
+            }
+
+            return true;
+        }
+
+        if (cmd instanceof AssignCommand) {
+            AssignCommand a = (AssignCommand) cmd;
+            if (a.getLeft() == null)
+                return isCond(a.getRight());
+
+            return a.getLeft() instanceof Variable && variable((Variable) a.getLeft())
+                && (a.getOp() == null || BinaryExpr.isArith(a.getOp()))
+                && isInt(a.getRight());
+        }
+
+        if (cmd instanceof DeclareCommand) {
+            DeclareCommand d = (DeclareCommand) cmd;
+            if (d.getExpr() == null || !isInt(d.getExpr()))
+                return false;
+
+            declared.add(d.getVariable().getSlot());
+            return variable(d.getVariable());
+        }
+
+        if (cmd instanceof IfCommand) {
+            IfCommand i = (IfCommand) cmd;
+            return isCond(i.getCond()) && accept(i.getThen())
+                && (i.getElse() == null || accept(i.getElse()));
+        }
+
+        if (cmd instanceof WhileCommand) {
+            WhileCommand w = (WhileCommand) cmd;
+            return isCond(w.getCond()) && accept(w.getBody());
+        }
+
+        if (cmd instanceof ForCommand) {
+            ForCommand f = (ForCommand) cmd;
+            return (f.getInit() == null || accept(f.getInit())) && accepts(f);
+        }
+
+        if (cmd instanceof PrintCommand)
+            return isInt(((PrintCommand) cmd).getExpr());
+
+        return false;
+    }
+
+    private boolean variable(Variable var) {
+        locals.computeIfAbsent(var.getSlot(), slot -> FIRST_LOCAL + locals.size());
+        return true;
+    }
+
+    // Expressions that give an int whenever the variables hold ints.
+    private boolean isInt(Expr expr) {
+        if (expr instanceof ConstExpr)
+            return ((ConstExpr) expr).getValue() instanceof NumberValue;
+
+        if (expr instanceof Variable)
+            return variable((Variable) expr);
+
+        if (expr instanceof UnaryExpr) {
+            UnaryExpr u = (UnaryExpr) expr;
+            return u.getOp() == UnaryOp.NEG && isInt(u.getExpr());
+        }
+
+        if (expr instanceof CastExpr) {
+            CastExpr c = (CastExpr) expr;
+            return c.getOp() == CastOp.INTEGER && isInt(c.getExpr());
+        }
+
+        BinaryOp op = op(expr);
+        return op != null && BinaryExpr.isArith(op) && isInt(left(expr)) && isInt(right(expr));
+    }
+
+    // Expressions that can be tested: the ints, the boolean constants,
+    // comparisons of ints and the logical operators over those.
+    private boolean isCond(Expr expr) {
+        if (expr instanceof ConstExpr && ((ConstExpr) expr).getValue() instanceof BooleanValue)
+            return true;
+
+        if (expr instanceof UnaryExpr && ((UnaryExpr) expr).getOp() == UnaryOp.NOT)
+            return isCond(((UnaryExpr) expr).getExpr());
+
+        BinaryOp op = op(expr);
+        if (op == BinaryOp.AND || op == BinaryOp.OR)
+            return isCond(left(expr)) && isCond(right(expr));
+
+        if (compare(op, true) != 0)
+            return isInt(left(expr)) && isInt(right(expr));
+
+        return isInt(expr);
+    }
+
+    // ---- Code generation
+
+    private void command(Command cmd) {
+        if (cmd instanceof BlocksCommand) {
+            for (Command c : ((BlocksCommand) cmd).getCommands())
+                command(c);
+        } else if (cmd instanceof AssignCommand) {
+            AssignCommand a = (AssignCommand) cmd;
+            if (a.getLeft() == null) {
+                if (isInt(a.getRight())) {
+                    expr(a.getRight());
+                    code.op(Code.POP, -1);
+                } else {
+                    Code.Label next = new Code.Label();
+                    jump(a.getRight(), true, next);
+                    code.place(next);
+                }
+            } else {
+                Variable var = (Variable) a.getLeft();
+                if (a.getOp() == null)
+                    expr(a.getRight());
+                else
+                    arith(a.getOp(), a.getLine(), var, a.getRight());
+
+                code.store(Code.ISTORE, locals.get(var.getSlot()));
+            }
+        } else if (cmd instanceof DeclareCommand) {
+            DeclareCommand d = (DeclareCommand) cmd;
+            expr(d.getExpr());
+            code.store(Code.ISTORE, locals.get(d.getVariable().getSlot()));
+        } else if (cmd instanceof IfCommand) {
+            IfCommand i = (IfCommand) cmd;
+            Code.Label otherwise = new Code.Label();
+            jump(i.getCond(), false, otherwise);
+            command(i.getThen());
+            if (i.getElse() != null) {
+                Code.Label end = new Code.Label();
+                code.jump(Code.GOTO, end);
+                code.place(otherwise);
+                command(i.getElse());
+                code.place(end);
+            } else {
+                code.place(otherwise);
+            }
+        } else if (cmd instanceof WhileCommand) {
+            WhileCommand w = (WhileCommand) cmd;
+            loop(w.getCond(), w.getBody(), null);
+        } else if (cmd instanceof ForCommand) {
+            ForCommand f = (ForCommand) cmd;
+            if (f.getInit() != null)
+                command(f.getInit());
+
+            loop(f.getCond(), f.getBody(), f.getUpdate());
+        } else {
+            PrintCommand p = (PrintCommand) cmd;
+            expr(p.getExpr());
+            code.pushInt(p.isNewline() ? 1 : 0);
+            code.member(Code.INVOKESTATIC,
+                file.methodRef("interpreter/jit/Jit", "print", "(IZ)V"), -2);
+        }
+    }
+
+    private void loop(Expr cond, Command body, Command update) {
+        Code.Label test = new Code.Label();
+        Code.Label end = new Code.Label();
+        code.place(test);
+        if (cond != null)
+            jump(cond, false, end);
+
+        command(body);
+        if (update != null)
+            command(update);
+
+        code.jump(Code.GOTO, test);
+        code.place(end);
+    }
+
+    // Leaves the int value of expr on the stack.
+    private void expr(Expr expr) {
+        if (expr instanceof ConstExpr) {
+            code.pushInt(((NumberValue) ((ConstExpr) expr).getValue()).intValue());
+        } else if (expr instanceof Variable) {
+            code.load(Code.ILOAD, locals.get(((Variable) expr).getSlot()));
+        } else if (expr instanceof UnaryExpr) {
+            expr(((UnaryExpr) expr).getExpr());
+            code.op(Code.INEG, 0);
+        } else if (expr instanceof CastExpr) {
+            expr(((CastExpr) expr).getExpr());
+        } else {
+            arith(op(expr), expr.getLine(), left(expr), right(expr));
+        }
+    }
+
+    // Addition, subtraction and multiplication wrap like Java ints, as
+    // BinaryExpr.arith does; the other operators call it to get its
+    // errors as well.
+    private void arith(BinaryOp op, int line, Expr left, Expr right) {
+        switch (op) {
+            case ADD:
+            case SUB:
+            case MUL:
+                expr(left);
+                expr(right);
+                code.op(op == BinaryOp.ADD ? Code.IADD : op == BinaryOp.SUB ? Code.ISUB : Code.IMUL, -1);
+                break;
+            default:
+                code.member(Code.GETSTATIC,
+                    file.fieldRef("interpreter/expr/BinaryOp", op.name(), BINARY_OP), 1);
+                code.pushInt(line);
+                expr(left);
+                expr(right);
+                code.member(Code.INVOKESTATIC, file.methodRef("interpreter/expr/BinaryExpr",
+                    "arith", "(" + BINARY_OP + "III)I"), -3);
+                break;
+        }
+    }
+
+    // Branches to target when the truth of expr is when.
+    private void jump(Expr expr, boolean when, Code.Label target) {
+        if (expr instanceof ConstExpr && ((ConstExpr) expr).getValue() instanceof BooleanValue) {
+            if (((BooleanValue) ((ConstExpr) expr).getValue()).value() == when)
+                code.jump(Code.GOTO, target);
+            return;
+        }
+
+        if (expr instanceof UnaryExpr && ((UnaryExpr) expr).getOp() == UnaryOp.NOT) {
+            jump(((UnaryExpr) expr).getExpr(), !when, target);
+            return;
+        }
+
+        BinaryOp op = op(expr);
+        if (op == BinaryOp.AND || op == BinaryOp.OR) {
+            // A false && or a true || is decided by either operand; the
+            // other way round both operands must agree.
+            if ((op == BinaryOp.AND) != when) {
+                jump(left(expr), when, target);
+                jump(right(expr), when, target);
+            } else {
+                Code.Label skip = new Code.Label();
+                jump(left(expr), !when, skip);
+                jump(right(expr), when, target);
+                code.place(skip);
+            }
+            return;
+        }
+
+        int compare = compare(op, when);
+        if (compare != 0) {
+            expr(left(expr));
+            expr(right(expr));
+            code.jump(compare, target);
+            return;
+        }
+
+        expr(expr);
+        code.jump(when ? Code.IFNE : Code.IFEQ, target);
+    }
+
+    // The IF_ICMP instruction that branches when op gives when, or 0 if
+    // op is not a comparison of ints.
+    private static int compare(BinaryOp op, boolean when) {
+        if (op == null)
+            return 0;
+
+        switch (op) {
+            case LOWER:
+                return when ? Code.IF_ICMPLT : Code.IF_ICMPGE;
+            case GREATER:
+                return when ? Code.IF_ICMPGT : Code.IF_ICMPLE;
+            case LOWER_EQUAL:
+                return when ? Code.IF_ICMPLE : Code.IF_ICMPGT;
+            case GREATER_EQUAL:
+                return when ? Code.IF_ICMPGE : Code.IF_ICMPLT;
+            case EQUALS:
+                return when ? Code.IF_ICMPEQ : Code.IF_ICMPNE;
+            case NOT_EQUALS:
+                return when ? Code.IF_ICMPNE : Code.IF_ICMPEQ;
+            default:
+                return 0;
+        }
+    }
+
+    // BinaryExpr and IntBinaryExpr share no type beyond Expr.
+    private static BinaryOp op(Expr expr) {
+        if (expr instanceof BinaryExpr)
+            return ((BinaryExpr) expr).getOp();
+
+        if (expr instanceof IntBinaryExpr)
+            return ((IntBinaryExpr) expr).getOp();
+
+        return null;
+    }
+
+    private static Expr left(Expr expr) {
+        return expr instanceof BinaryExpr ?
+            ((BinaryExpr) expr).getLeft() : ((IntBinaryExpr) expr).getLeft();
+    }
+
+    private static Expr right(Expr expr) {
+        return expr instanceof BinaryExpr ?
+            ((BinaryExpr) expr).getRight() : ((IntBinaryExpr) expr).getRight();
+    }
+
+}
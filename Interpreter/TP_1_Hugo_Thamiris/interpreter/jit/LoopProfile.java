@@ -0,0 +1,78 @@
+package interpreter.jit;
+
+import interpreter.command.Command;
+import interpreter.util.Memory;
+
+// The back-edge counter of one while or for command. When the loop has
+// gone around Jit.threshold() times it is compiled once; from then on
+// the compiled code takes the loop over at its condition whenever the
+// guarded variables hold ints, and the tree walker keeps it otherwise.
+//
+// A program compiled by MgEngine may run on several threads at once.
+// The count may then miss a few back edges, which only delays the
+// compilation; the loop is compiled once, under the lock, and guards is
+// set before body is published, so whoever sees body sees both.
+public final class LoopProfile {
+
+    private final Command loop;
+    private int backEdges;
+    private boolean tried;
+    private volatile LoopBody body;
+    private int[] guards;
+
+    public LoopProfile(Command loop) {
+        this.loop = loop;
+    }
+
+    // Called right before the first test of the condition. Returns true
+    // if the compiled code ran the whole loop.
+    public boolean enter(Memory memory) {
+        LoopBody body = this.body;
+        if (body == null)
+            return false;
+
+        for (int slot : guards) {
+            if (!memory.isInt(slot))
+                return false;
+        }
+
+        body.run(memory);
+        return true;
+    }
+
+    // Called after each turn, before the condition is tested again.
+    // Returns true if the compiled code ran the rest of the loop.
+    public boolean backEdge(Memory memory) {
+        if (body == null) {
+            int threshold = Jit.threshold();
+            if (tried || threshold <= 0 || ++backEdges < threshold)
+                return false;
+
+            compile();
+            if (body == null)
+                return false;
+        }
+
+        return enter(memory);
+    }
+
+    private synchronized void compile() {
+        if (tried)
+            return;
+
+        tried = true;
+        LoopCompiler compiler = new LoopCompiler();
+        if (!compiler.accepts(loop))
+            return;
+
+        try {
+            LoopBody compiled = Jit.define(compiler.compile(loop));
+            guards = compiler.guards();
+            body = compiled;
+        } catch (IllegalStateException | LinkageError e) {
+            // Too large for one method, or rejected by the class loader or
+            // the verifier; either way the tree walker keeps the loop.
+        }
+    }
+
+}
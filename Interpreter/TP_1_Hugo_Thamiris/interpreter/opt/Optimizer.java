@@ -0,0 +1,489 @@
+package interpreter.opt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import interpreter.command.AssignCommand;
+import interpreter.command.BlocksCommand;
+import interpreter.command.Command;
+import interpreter.command.DeclareCommand;
+import interpreter.command.DeclareListCommand;
+import interpreter.command.ForCommand;
+import interpreter.command.ForeachCommand;
+import interpreter.command.IfCommand;
+import interpreter.command.PrintCommand;
+import interpreter.command.WhileCommand;
+import interpreter.expr.AccessExpr;
+import interpreter.expr.BinaryExpr;
+import interpreter.expr.BinaryOp;
+import interpreter.expr.CastExpr;
+import interpreter.expr.CastOp;
+import interpreter.expr.ConstExpr;
+import interpreter.expr.Expr;
+import interpreter.expr.FunctionExpr;
+import interpreter.expr.IntBinaryExpr;
+import interpreter.expr.ListExpr;
+import interpreter.expr.MapExpr;
+import interpreter.expr.SetExpr;
+import interpreter.expr.SwitchExpr;
+import interpreter.expr.UnaryExpr;
+import interpreter.expr.UnaryOp;
+import interpreter.expr.Variable;
+import interpreter.util.Utils;
+import interpreter.value.BooleanValue;
+import interpreter.value.NumberValue;
+import interpreter.value.TextValue;
+import interpreter.value.Value;
+
+// Runs between the parser and execution and returns a simpler copy of
+// the AST: constant subtrees become a ConstExpr, the arms of if, while,
+// for and switch that can never run are dropped, and casts to a type
+// the operand already has disappear. Nothing that would stop the
+// program is folded, so every error still happens when and where it did.
+public class Optimizer {
+
+    // Text repeated by '*' is only folded up to this length.
+    private static final int MAX_TEXT = 1 << 12;
+
+    private int before;
+    private int after;
+
+    public Command optimize(Command cmd) {
+        Command result = command(cmd);
+        if (result == null)
+            result = new BlocksCommand(cmd.getLine());
+
+        before += count(cmd);
+        after += count(result);
+        return result;
+    }
+
+    // Nodes in the trees given to optimize().
+    public int nodes() {
+        return before;
+    }
+
+    // Nodes removed from those trees.
+    public int eliminated() {
+        return before - after;
+    }
+
+    // ---- Commands; null stands for a command that does nothing.
+
+    private Command command(Command cmd) {
+        int line = cmd.getLine();
+        if (cmd instanceof BlocksCommand) {
+            BlocksCommand result = new BlocksCommand(line);
+            for (Command c : ((BlocksCommand) cmd).getCommands()) {
+                Command r = command(c);
+                if (r != null)
+                    result.addCommand(r);
+            }
+
+            return result;
+        }
+
+        if (cmd instanceof AssignCommand) {
+            AssignCommand a = (AssignCommand) cmd;
+            Expr right = expr(a.getRight());
+            if (a.getLeft() == null)
+                return right instanceof ConstExpr ? null : new AssignCommand(line, null, null, right);
+
+            return new AssignCommand(line, lvalue(a.getLeft()), a.getOp(), right);
+        }
+
+        if (cmd instanceof DeclareCommand) {
+            DeclareCommand d = (DeclareCommand) cmd;
+            return new DeclareCommand(line, d.getVariable(),
+                d.getExpr() == null ? null : expr(d.getExpr()));
+        }
+
+        if (cmd instanceof DeclareListCommand) {
+            DeclareListCommand d = (DeclareListCommand) cmd;
+            return new DeclareListCommand(line, d.getVariables(), expr(d.getExpr()));
+        }
+
+        if (cmd instanceof PrintCommand) {
+            PrintCommand p = (PrintCommand) cmd;
+            return new PrintCommand(line, expr(p.getExpr()), p.isNewline());
+        }
+
+        if (cmd instanceof IfCommand) {
+            IfCommand i = (IfCommand) cmd;
+            Expr cond = expr(i.getCond());
+            if (cond instanceof ConstExpr) {
+                Command taken = Utils.eval(((ConstExpr) cond).getValue()) ? i.getThen() : i.getElse();
+                return taken == null ? null : command(taken);
+            }
+
+            return new IfCommand(line, cond, body(i.getThen()),
+                i.getElse() == null ? null : command(i.getElse()));
+        }
+
+        if (cmd instanceof WhileCommand) {
+            WhileCommand w = (WhileCommand) cmd;
+            Expr cond = expr(w.getCond());
+            if (isFalse(cond))
+                return null;
+
+            return new WhileCommand(line, cond, body(w.getBody()));
+        }
+
+        if (cmd instanceof ForCommand) {
+            ForCommand f = (ForCommand) cmd;
+            Command init = f.getInit() == null ? null : command(f.getInit());
+            Expr cond = f.getCond() == null ? null : expr(f.getCond());
+            if (isFalse(cond))
+                return init;
+
+            // A missing condition is always true.
+            if (cond instanceof ConstExpr)
+                cond = null;
+
+            return new ForCommand(line, init, cond,
+                f.getUpdate() == null ? null : command(f.getUpdate()), body(f.getBody()));
+        }
+
+        if (cmd instanceof ForeachCommand) {
+            ForeachCommand f = (ForeachCommand) cmd;
+            return new ForeachCommand(line, f.getVariable(), f.isDeclare(),
+                expr(f.getExpr()), body(f.getBody()));
+        }
+
+        return cmd;
+    }
+
+    // The body of a command, which cannot be left out.
+    private Command body(Command cmd) {
+        Command result = command(cmd);
+        return result == null ? new BlocksCommand(cmd.getLine()) : result;
+    }
+
+    private static boolean isFalse(Expr expr) {
+        return expr instanceof ConstExpr && !Utils.eval(((ConstExpr) expr).getValue());
+    }
+
+    // ---- Expressions
+
+    private SetExpr lvalue(SetExpr expr) {
+        return expr instanceof AccessExpr ? (SetExpr) expr(expr) : expr;
+    }
+
+    private Expr expr(Expr expr) {
+        int line = expr.getLine();
+        if (expr instanceof UnaryExpr) {
+            UnaryExpr u = (UnaryExpr) expr;
+            Expr operand = expr(u.getExpr());
+            if (operand instanceof ConstExpr) {
+                Value<?> value = ((ConstExpr) operand).getValue();
+                if (u.getOp() == UnaryOp.NOT || value instanceof NumberValue)
+                    return new ConstExpr(line, UnaryExpr.apply(u.getOp(), line, value));
+            }
+
+            return new UnaryExpr(line, u.getOp(), operand);
+        }
+
+        if (expr instanceof BinaryExpr) {
+            BinaryExpr b = (BinaryExpr) expr;
+            return binary(line, b.getLeft(), b.getOp(), b.getRight());
+        }
+
+        if (expr instanceof IntBinaryExpr) {
+            IntBinaryExpr b = (IntBinaryExpr) expr;
+            return binary(line, b.getLeft(), b.getOp(), b.getRight());
+        }
+
+        if (expr instanceof CastExpr) {
+            CastExpr c = (CastExpr) expr;
+            Expr operand = expr(c.getExpr());
+            // Constants are null, booleans, numbers or text, all of which
+            // convert to any of the three types.
+            if (operand instanceof ConstExpr)
+                return new ConstExpr(line, CastExpr.apply(c.getOp(), line, ((ConstExpr) operand).getValue()));
+
+            if (c.getOp() == CastOp.INTEGER && IntBinaryExpr.isIntType(operand))
+                return operand;
+
+            if (c.getOp() == CastOp.BOOLEAN && isBooleanType(operand))
+                return operand;
+
+            return new CastExpr(line, operand, c.getOp());
+        }
+
+        if (expr instanceof FunctionExpr) {
+            FunctionExpr f = (FunctionExpr) expr;
+            return new FunctionExpr(line, f.getOp(), expr(f.getExpr()));
+        }
+
+        if (expr instanceof SwitchExpr)
+            return switchExpr((SwitchExpr) expr);
+
+        if (expr instanceof ListExpr) {
+            ListExpr result = new ListExpr(line);
+            for (Expr item : ((ListExpr) expr).getItems())
+                result.addItem(expr(item));
+
+            return result;
+        }
+
+        if (expr instanceof MapExpr) {
+            MapExpr items = (MapExpr) expr;
+            MapExpr result = new MapExpr(line);
+            for (int i = 0; i < items.getItems().size(); i++)
+                result.addItem(items.getNames().get(i), expr(items.getItems().get(i)));
+
+            return result;
+        }
+
+        if (expr instanceof AccessExpr) {
+            AccessExpr a = (AccessExpr) expr;
+            return new AccessExpr(line, expr(a.getBase()), expr(a.getIndex()));
+        }
+
+        // Constants and variables.
+        return expr;
+    }
+
+    private Expr binary(int line, Expr l, BinaryOp op, Expr r) {
+        Expr left = expr(l);
+        Expr right = expr(r);
+
+        // A constant on the left of && or || decides the result alone or
+        // leaves only the truth of the right side; the right side is not
+        // evaluated in the first case anyway.
+        if ((op == BinaryOp.AND || op == BinaryOp.OR) && left instanceof ConstExpr) {
+            boolean value = Utils.eval(((ConstExpr) left).getValue());
+            if (value == (op == BinaryOp.OR))
+                return new ConstExpr(line, BooleanValue.of(value));
+
+            return isBooleanType(right) ? right : new CastExpr(line, right, CastOp.BOOLEAN);
+        }
+
+        if (left instanceof ConstExpr && right instanceof ConstExpr) {
+            Value<?> lv = ((ConstExpr) left).getValue();
+            Value<?> rv = ((ConstExpr) right).getValue();
+            if (isSafe(op, lv, rv))
+                return new ConstExpr(line, BinaryExpr.apply(op, line, lv, rv));
+        }
+
+        // The same choice the parser makes.
+        if (BinaryExpr.isArith(op) && (op == BinaryOp.DIV || op == BinaryOp.MOD ||
+                op == BinaryOp.POWER || IntBinaryExpr.isIntType(left)))
+            return new IntBinaryExpr(line, left, op, right);
+
+        return new BinaryExpr(line, left, op, right);
+    }
+
+    // Whether BinaryExpr.apply() gives a result for these constants
+    // instead of stopping the program.
+    private static boolean isSafe(BinaryOp op, Value<?> left, Value<?> right) {
+        boolean numbers = left instanceof NumberValue && right instanceof NumberValue;
+        boolean texts = left instanceof TextValue && right instanceof TextValue;
+        switch (op) {
+            case AND:
+            case OR:
+            case EQUALS:
+            case NOT_EQUALS:
+                return true;
+            case LOWER:
+            case GREATER:
+            case LOWER_EQUAL:
+            case GREATER_EQUAL:
+                return numbers || texts;
+            case CONTAINS:
+            case NOT_CONTAINS:
+                return texts;
+            case ADD:
+                return numbers || left instanceof TextValue;
+            case SUB:
+                return numbers;
+            case MUL:
+                if (left instanceof TextValue && right instanceof NumberValue) {
+                    long times = ((NumberValue) right).intValue();
+                    return times >= 0 && times * ((TextValue) left).value().length() <= MAX_TEXT;
+                }
+
+                return numbers;
+            case DIV:
+            case MOD:
+                return numbers && ((NumberValue) right).intValue() != 0;
+            case POWER:
+                return numbers && ((NumberValue) right).intValue() >= 0;
+            default:
+                return false;
+        }
+    }
+
+    // Whether an expression can only give a boolean (or stop the program).
+    private static boolean isBooleanType(Expr expr) {
+        if (expr instanceof ConstExpr)
+            return ((ConstExpr) expr).getValue() instanceof BooleanValue;
+
+        if (expr instanceof UnaryExpr)
+            return ((UnaryExpr) expr).getOp() == UnaryOp.NOT;
+
+        if (expr instanceof BinaryExpr)
+            return !BinaryExpr.isArith(((BinaryExpr) expr).getOp());
+
+        if (expr instanceof CastExpr)
+            return ((CastExpr) expr).getOp() == CastOp.BOOLEAN;
+
+        return false;
+    }
+
+    // Keys are compared in order and the first equal one wins, so a
+    // constant key equal to an earlier constant key is never taken, and
+    // with a constant value so is every constant key that differs from it.
+    private Expr switchExpr(SwitchExpr s) {
+        int line = s.getLine();
+        Expr value = expr(s.getExpr());
+        boolean known = value instanceof ConstExpr;
+        Value<?> v = known ? ((ConstExpr) value).getValue() : null;
+
+        SwitchExpr result = new SwitchExpr(line, value);
+        List<Value<?>> seen = new ArrayList<Value<?>>();
+        for (int i = 0; i < s.getKeys().size(); i++) {
+            Expr key = expr(s.getKeys().get(i));
+            if (key instanceof ConstExpr) {
+                Value<?> k = ((ConstExpr) key).getValue();
+                if (seen.contains(k) || (known && !Objects.equals(v, k)))
+                    continue;
+
+                if (known) {
+                    // Taken whenever the keys before it are not; the
+                    // default and the later cases are dead.
+                    Expr taken = expr(s.getValues().get(i));
+                    if (result.getKeys().isEmpty())
+                        return taken;
+
+                    result.addCase(key, taken);
+                    return result;
+                }
+
+                seen.add(k);
+            }
+
+            result.addCase(key, expr(s.getValues().get(i)));
+        }
+
+        Expr otherwise = s.getDefault() == null ? null : expr(s.getDefault());
+        if (known && result.getKeys().isEmpty())
+            return otherwise == null ? new ConstExpr(line, null) : otherwise;
+
+        result.setDefault(otherwise);
+        return result;
+    }
+
+    // ---- Node counts
+
+    private static int count(Command cmd) {
+        if (cmd == null)
+            return 0;
+
+        if (cmd instanceof BlocksCommand) {
+            int n = 1;
+            for (Command c : ((BlocksCommand) cmd).getCommands())
+                n += count(c);
+
+            return n;
+        }
+
+        if (cmd instanceof AssignCommand) {
+            AssignCommand a = (AssignCommand) cmd;
+            return 1 + count(a.getLeft()) + count(a.getRight());
+        }
+
+        if (cmd instanceof DeclareCommand) {
+            DeclareCommand d = (DeclareCommand) cmd;
+            return 2 + count(d.getExpr());
+        }
+
+        if (cmd instanceof DeclareListCommand) {
+            DeclareListCommand d = (DeclareListCommand) cmd;
+            return 1 + d.getVariables().size() + count(d.getExpr());
+        }
+
+        if (cmd instanceof PrintCommand)
+            return 1 + count(((PrintCommand) cmd).getExpr());
+
+        if (cmd instanceof IfCommand) {
+            IfCommand i = (IfCommand) cmd;
+            return 1 + count(i.getCond()) + count(i.getThen()) + count(i.getElse());
+        }
+
+        if (cmd instanceof WhileCommand) {
+            WhileCommand w = (WhileCommand) cmd;
+            return 1 + count(w.getCond()) + count(w.getBody());
+        }
+
+        if (cmd instanceof ForCommand) {
+            ForCommand f = (ForCommand) cmd;
+            return 1 + count(f.getInit()) + count(f.getCond()) + count(f.getUpdate()) + count(f.getBody());
+        }
+
+        if (cmd instanceof ForeachCommand) {
+            ForeachCommand f = (ForeachCommand) cmd;
+            return 2 + count(f.getExpr()) + count(f.getBody());
+        }
+
+        return 1;
+    }
+
+    private static int count(Expr expr) {
+        if (expr == null)
+            return 0;
+
+        if (expr instanceof UnaryExpr)
+            return 1 + count(((UnaryExpr) expr).getExpr());
+
+        if (expr instanceof BinaryExpr) {
+            BinaryExpr b = (BinaryExpr) expr;
+            return 1 + count(b.getLeft()) + count(b.getRight());
+        }
+
+        if (expr instanceof IntBinaryExpr) {
+            IntBinaryExpr b = (IntBinaryExpr) expr;
+            return 1 + count(b.getLeft()) + count(b.getRight());
+        }
+
+        if (expr instanceof CastExpr)
+            return 1 + count(((CastExpr) expr).getExpr());
+
+        if (expr instanceof FunctionExpr)
+            return 1 + count(((FunctionExpr) expr).getExpr());
+
+        if (expr instanceof SwitchExpr) {
+            SwitchExpr s = (SwitchExpr) expr;
+            int n = 1 + count(s.getExpr()) + count(s.getDefault());
+            for (int i = 0; i < s.getKeys().size(); i++)
+                n += count(s.getKeys().get(i)) + count(s.getValues().get(i));
+
+            return n;
+        }
+
+        if (expr instanceof ListExpr) {
+            int n = 1;
+            for (Expr item : ((ListExpr) expr).getItems())
+                n += count(item);
+
+            return n;
+        }
+
+        if (expr instanceof MapExpr) {
+            int n = 1;
+            for (Expr item : ((MapExpr) expr).getItems())
+                n += count(item);
+
+            return n;
+        }
+
+        if (expr instanceof AccessExpr) {
+            AccessExpr a = (AccessExpr) expr;
+            return 1 + count(a.getBase()) + count(a.getIndex());
+        }
+
+        return 1;
+    }
+
+}
@@ -0,0 +1,28 @@
+package interpreter.util;
+
+// One error in a program: the line it was found on and what mgi prints
+// for it after the line number.
+public class Diagnostic {
+
+    private final int line;
+    private final String message;
+
+    public Diagnostic(int line, String message) {
+        this.line = line;
+        this.message = message;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%02d: %s", line, message);
+    }
+
+}
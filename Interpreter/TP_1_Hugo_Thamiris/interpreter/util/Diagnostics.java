@@ -0,0 +1,37 @@
+package interpreter.util;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// The errors found in one program, in the order they were found. The
+// parser reports here and carries on, so a single pass over a file
+// finds all of its errors instead of stopping the JVM at the first.
+public class Diagnostics {
+
+    private final List<Diagnostic> errors = new ArrayList<Diagnostic>();
+
+    public void report(Diagnostic error) {
+        errors.add(error);
+    }
+
+    public void report(int line, String message) {
+        report(new Diagnostic(line, message));
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    public List<Diagnostic> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    // One error per line, as mgi shows them.
+    public void print(PrintStream out) {
+        for (Diagnostic error : errors)
+            out.printf("%s\n", error);
+    }
+
+}
@@ -0,0 +1,19 @@
+package interpreter.util;
+
+// Thrown by Utils.abort when a program does something it cannot: the
+// program stops, but the JVM running it does not. There is no stack
+// trace to fill in, since the diagnostic says all there is to say.
+public class InterpreterException extends RuntimeException {
+
+    private final Diagnostic diagnostic;
+
+    public InterpreterException(Diagnostic diagnostic) {
+        super(diagnostic.toString(), null, false, false);
+        this.diagnostic = diagnostic;
+    }
+
+    public Diagnostic getDiagnostic() {
+        return diagnostic;
+    }
+
+}
@@ -1,20 +1,54 @@
 package interpreter.util;
 
-import java.util.HashMap;
-import java.util.Map;
-
+import interpreter.value.NumberValue;
+import interpreter.value.TextValue;
 import interpreter.value.Value;
 
+// One frame of variables. The resolver gives every declaration a slot
+// number when the program is parsed, so reading or writing a variable
+// is just an array access. Numbers written through writeInt() stay
+// unboxed in a parallel int array and only become a NumberValue when
+// someone reads them as a value.
 public class Memory {
 
-    private static Map<String, Value<?>> memory = new HashMap<String, Value<?>>();
+    // Marks a slot whose value is in ints; never seen outside.
+    private static final Value<?> INT = new TextValue("int");
+
+    private Value<?>[] slots;
+    private int[] ints;
+
+    public Memory(int size) {
+        this.slots = new Value<?>[size];
+        this.ints = new int[size];
+    }
+
+    public int size() {
+        return slots.length;
+    }
+
+    public Value<?> read(int slot) {
+        Value<?> value = slots[slot];
+        return value == INT ? NumberValue.of(ints[slot]) : value;
+    }
+
+    public void write(int slot, Value<?> value) {
+        slots[slot] = value;
+    }
+
+    public boolean isInt(int slot) {
+        Value<?> value = slots[slot];
+        return value == INT || value instanceof NumberValue;
+    }
 
-    public static Value<?> read(String name) {
-        return memory.get(name);
+    // Only valid when isInt(slot) is true.
+    public int readInt(int slot) {
+        Value<?> value = slots[slot];
+        return value == INT ? ints[slot] : ((NumberValue) value).intValue();
     }
 
-    public static void write(String name, Value<?> value) {
-        memory.put(name, value);
+    public void writeInt(int slot, int value) {
+        slots[slot] = INT;
+        ints[slot] = value;
     }
 
 }
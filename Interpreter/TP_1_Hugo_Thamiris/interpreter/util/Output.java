@@ -0,0 +1,85 @@
+package interpreter.util;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// Where print and println go: standard output, or a file given with
+// mgi --output. Everything is gathered in one large buffer and handed
+// to the channel only when the buffer fills, before read() shows its
+// prompt, before the program stops with an error and at exit, instead
+// of a locked, flushed write to the terminal per statement.
+//
+// Anything else written to System.out must call flush() first so the
+// two streams stay in order.
+//
+// A thread can send its output elsewhere with use(): MgEngine does so
+// for every script it runs, so that scripts running at the same time
+// each print to their own writer.
+public class Output {
+
+    private static final int SIZE = 1 << 16;
+
+    private static volatile Writer writer = open(new FileOutputStream(FileDescriptor.out).getChannel());
+
+    private static final ThreadLocal<Writer> local = new ThreadLocal<Writer>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(Output::flush));
+    }
+
+    private Output() {
+    }
+
+    public static Writer writer() {
+        Writer own = local.get();
+        return own != null ? own : writer;
+    }
+
+    // Sends what the current thread prints to out, or back to the shared
+    // writer if out is null. Returns the writer used until now.
+    public static Writer use(Writer out) {
+        Writer previous = local.get();
+        if (out == null)
+            local.remove();
+        else
+            local.set(out);
+
+        return previous;
+    }
+
+    // Sends what follows to a file, which is created or emptied. What
+    // was written so far goes out first.
+    public static synchronized void redirect(String filename) throws IOException {
+        flush();
+        writer = open(FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+    }
+
+    public static synchronized void flush() {
+        try {
+            Writer own = local.get();
+            if (own != null)
+                own.flush();
+
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Writer open(FileChannel channel) {
+        return new BufferedWriter(new OutputStreamWriter(
+            new BufferedOutputStream(Channels.newOutputStream(channel), SIZE)), SIZE);
+    }
+
+}
@@ -1,13 +1,48 @@
 package interpreter.util;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+import interpreter.value.Value;
+import interpreter.value.ValuePrinter;
+
 public class Utils {
 
+    // What every error of a running program says.
+    public static final String INVALID_OPERATION = "Operação inválida";
+
     private Utils() {
     }
 
+    // Stops the program with an invalid operation at the given line. It
+    // is up to whoever runs the program to show the error and end.
     public static void abort(int line) {
-        System.out.printf("%02d: Operação inválida\n", line);
-        System.exit(1);
+        throw new InterpreterException(new Diagnostic(line, INVALID_OPERATION));
+    }
+
+    // The truth of a value as used by if, while, for and the logical
+    // operators; null is false.
+    public static boolean eval(Value<?> value) {
+        return value != null && value.eval();
+    }
+
+    // The text of a value as printed by print/println.
+    public static String text(Value<?> value) {
+        return value == null ? "null" : value.toString();
+    }
+
+    // print and println, into the Output buffer. The value is written
+    // as it is walked, never as one String.
+    public static void print(Value<?> value, boolean newline) {
+        Writer out = Output.writer();
+        try {
+            new ValuePrinter(out).print(value);
+            if (newline)
+                out.write(System.lineSeparator());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
-}
\ No newline at end of file
+}
@@ -1,56 +1,470 @@
 package interpreter.value;
 
+import java.util.AbstractList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
 
+// A list of values kept in a persistent Vector. The value is mutable
+// (a[i] = x changes it for everyone holding it), but copy() is O(1): the
+// copy and the original share the vector and each one copies only the
+// paths it changes afterwards. While a list is not shared it owns its
+// nodes, so appends and sets change them in place.
+//
+// A list starts out holding its numbers in an IntVector and moves to a
+// Vector of values the first time anything else is stored in it; it
+// never moves back. keys() and values() of a map give a third kind of
+// list that reads from a snapshot of the map and takes its items out
+// only when the list is changed. Exactly one of ints, items and map is
+// in use.
+//
+// Lists are equal when their items are. The hash is kept until the
+// list changes, which modCount tells. A change to a list or map held
+// by another does not reach the holder's modCount, so such changes are
+// counted together in CHANGES and a list holding others keeps its hash
+// only while that count stays the same. A list or map met again inside
+// itself is compared by identity and adds a constant to the hash, so
+// one that contains itself is neither hashed nor compared forever; a
+// hash that met a cycle depends on where the walk began and is not
+// kept.
 public class ArrayValue extends Value<List<Value<?>>> {
 
-    private List<Value<?>> value;
+    private static final AtomicInteger CHANGES = new AtomicInteger();
+
+    private IntVector ints;
+    private Vector items;
+    private MapValue map;
+    private boolean mapKeys;
+    private Object owner;
+    private List<Value<?>> view;
+
+    private int modCount;
+    private int nested;
+    private boolean held;
+    private int hash;
+    private int hashed = -1;
+    private int changes;
+
+    // The last item read from a map with holes, and its position there.
+    private int cursor;
+    private int cursorPos;
+
+    public ArrayValue() {
+        this.ints = IntVector.EMPTY;
+    }
 
     public ArrayValue(List<Value<?>> value) {
-        this.value = value;
+        this();
+        for (Value<?> v : value)
+            add(v);
+    }
+
+    private ArrayValue(ArrayValue list) {
+        this.ints = list.ints;
+        this.items = list.items;
+        this.map = list.map;
+        this.mapKeys = list.mapKeys;
+        this.nested = list.nested;
+        this.hash = list.hash;
+        this.hashed = list.hashed == list.modCount ? 0 : -1;
+        this.changes = list.changes;
+    }
+
+    private ArrayValue(MapValue map, boolean keys) {
+        this.map = map.copy();
+        this.mapKeys = keys;
+        this.nested = keys ? 0 : map.nested();
+    }
+
+    // The names of a map in order, in O(1); later changes to the map do
+    // not show.
+    public static ArrayValue keysOf(MapValue map) {
+        return new ArrayValue(map, true);
+    }
+
+    public static ArrayValue valuesOf(MapValue map) {
+        return new ArrayValue(map, false);
     }
 
+    // A live view: changes through it change the value.
     @Override
     public List<Value<?>> value() {
-        return this.value;
+        if (view == null)
+            view = new View();
+
+        return view;
+    }
+
+    public int size() {
+        if (ints != null)
+            return ints.size();
+
+        return items != null ? items.size() : map.size();
+    }
+
+    // Whether every item is a number, so getInt() can be used.
+    public boolean isInt() {
+        return ints != null;
+    }
+
+    // Only for 0 <= index < size().
+    public Value<?> get(int index) {
+        if (ints != null)
+            return NumberValue.of(ints.get(index));
+
+        return items != null ? (Value<?>) items.get(index) : entry(index);
+    }
+
+    // Only for 0 <= index < size() on a list where isInt() is true.
+    public int getInt(int index) {
+        return ints.get(index);
+    }
+
+    public void set(int index, Value<?> value) {
+        if (ints != null && value instanceof NumberValue) {
+            editInts().set(index, ((NumberValue) value).intValue());
+        } else {
+            Vector items = editItems();
+            if (isCollection((Value<?>) items.get(index)))
+                nested--;
+            if (isCollection(value)) {
+                nested++;
+                hold(value);
+            }
+
+            items.set(index, value);
+        }
+    }
+
+    public void add(Value<?> value) {
+        if (ints != null && value instanceof NumberValue) {
+            editInts().add(((NumberValue) value).intValue());
+        } else {
+            if (isCollection(value)) {
+                nested++;
+                hold(value);
+            }
+
+            editItems().add(value);
+        }
+    }
+
+    public void addInt(int value) {
+        if (ints != null)
+            editInts().add(value);
+        else
+            editItems().add(NumberValue.of(value));
+    }
+
+    // A new list with the same items, in O(1).
+    public ArrayValue copy() {
+        owner = null;
+        return new ArrayValue(this);
+    }
+
+    public boolean contains(Value<?> value) {
+        if (ints != null) {
+            if (!(value instanceof NumberValue))
+                return false;
+
+            int n = ((NumberValue) value).intValue();
+            for (int i = 0; i < ints.size(); i++) {
+                if (ints.get(i) == n)
+                    return true;
+            }
+
+            return false;
+        }
+
+        // equals() looks at the kept hashes first, so most items are
+        // told apart without walking into them.
+        for (int i = 0, n = size(); i < n; i++) {
+            Value<?> v = get(i);
+            if (value == null ? v == null : value.equals(v))
+                return true;
+        }
+
+        return false;
+    }
+
+    static boolean isCollection(Value<?> value) {
+        return value instanceof ArrayValue || value instanceof MapValue;
+    }
+
+    // Marks a list or map as held by another, so that its changes are
+    // counted from now on.
+    static void hold(Value<?> value) {
+        if (value instanceof ArrayValue)
+            ((ArrayValue) value).held = true;
+        else
+            ((MapValue) value).hold();
+    }
+
+    // Counts a change to a list or map held by another.
+    static void change() {
+        CHANGES.incrementAndGet();
+    }
+
+    static int changes() {
+        return CHANGES.get();
+    }
+
+    // What a list or map met again inside itself adds to the hash.
+    static final int CYCLE = 0x6379636c;
+
+    // The hash and equality of items, given the lists and maps being
+    // hashed or compared around them.
+    static int hash(Value<?> value, Map<Value<?>, Boolean> path) {
+        if (value instanceof ArrayValue)
+            return ((ArrayValue) value).hash(path);
+        if (value instanceof MapValue)
+            return ((MapValue) value).hash(path);
+
+        return value == null ? 0 : value.hashCode();
+    }
+
+    static boolean same(Value<?> a, Value<?> b, Map<Value<?>, Boolean> path) {
+        if (a instanceof ArrayValue)
+            return ((ArrayValue) a).equals(b, path);
+        if (a instanceof MapValue)
+            return ((MapValue) a).equals(b, path);
+
+        return a == null ? b == null : a.equals(b);
+    }
+
+    // Puts a list or map holding others on the path; null if it is
+    // already there, in which case the hashes of all on the path met a
+    // cycle and are not kept. The path is made at the first one.
+    static Map<Value<?>, Boolean> enter(Value<?> value, Map<Value<?>, Boolean> path) {
+        if (path == null)
+            path = new IdentityHashMap<Value<?>, Boolean>();
+
+        if (path.containsKey(value)) {
+            path.replaceAll((v, clean) -> Boolean.FALSE);
+            return null;
+        }
+
+        path.put(value, Boolean.TRUE);
+        return path;
+    }
+
+    // Takes a list or map off the path; whether its hash may be kept.
+    static boolean leave(Value<?> value, Map<Value<?>, Boolean> path) {
+        return path.remove(value);
+    }
+
+    private Object owner() {
+        if (owner == null)
+            owner = new Object();
+
+        return owner;
+    }
+
+    private void changed() {
+        modCount++;
+        if (held)
+            change();
+    }
+
+    private IntVector editInts() {
+        changed();
+        return ints = ints.editable(owner());
+    }
+
+    // Moves the numbers or the entries of the map over to a Vector of
+    // values if they are not there yet. The new vector belongs to this
+    // list alone.
+    private Vector editItems() {
+        changed();
+        if (items == null) {
+            Vector values = Vector.EMPTY.editable(owner());
+            for (int i = 0, n = size(); i < n; i++)
+                values.add(get(i));
+
+            items = values;
+            ints = null;
+            map = null;
+        }
+
+        return items = items.editable(owner());
+    }
+
+    // Item index of a map view. Removed entries leave holes in the
+    // positions, so the search starts from the last item read and
+    // reading in order costs O(1) per item.
+    private Value<?> entry(int index) {
+        int pos = index;
+        if (map.positions() != map.size()) {
+            int i = cursor;
+            pos = cursorPos;
+            if (index < i) {
+                i = 0;
+                pos = 0;
+            }
+
+            while (true) {
+                while (map.keyAt(pos) == null)
+                    pos++;
+
+                if (i == index)
+                    break;
+
+                i++;
+                pos++;
+            }
+
+            cursor = i;
+            cursorPos = pos;
+        }
+
+        return mapKeys ? new TextValue(map.keyAt(pos)) : map.valueAt(pos);
     }
 
     @Override
     public boolean eval() {
-        return !value.isEmpty();
+        return size() > 0;
     }
 
+    // The same hash for the same items in either storage, as
+    // java.util.List computes it.
     @Override
     public int hashCode() {
-        return this.value.hashCode();
+        return hash(null);
+    }
+
+    private int hash(Map<Value<?>, Boolean> path) {
+        int changes = changes();
+        if (hashed == modCount && (nested == 0 || this.changes == changes))
+            return hash;
+
+        int hash = 1;
+        boolean keep = true;
+        if (ints != null) {
+            for (int i = 0; i < ints.size(); i++)
+                hash = 31 * hash + Integer.hashCode(ints.get(i));
+        } else if (nested == 0) {
+            for (int i = 0, n = size(); i < n; i++) {
+                Object v = get(i);
+                hash = 31 * hash + (v == null ? 0 : v.hashCode());
+            }
+        } else {
+            Map<Value<?>, Boolean> inner = enter(this, path);
+            if (inner == null)
+                return CYCLE;
+
+            for (int i = 0, n = size(); i < n; i++)
+                hash = 31 * hash + hash(get(i), inner);
+            keep = leave(this, inner);
+        }
+
+        if (keep) {
+            this.hash = hash;
+            this.hashed = modCount;
+            this.changes = changes;
+        }
+
+        return hash;
     }
 
     @Override
     public boolean equals(Object obj) {
-        if (this == obj) {
+        return equals(obj, null);
+    }
+
+    private boolean equals(Object obj, Map<Value<?>, Boolean> path) {
+        if (this == obj)
             return true;
-        } else if (obj instanceof ArrayValue) {
-            return this.value == ((ArrayValue) obj).value;
-        } else {
+
+        if (!(obj instanceof ArrayValue))
             return false;
+
+        ArrayValue other = (ArrayValue) obj;
+        int n = size();
+        if (n != other.size() || hashCode() != other.hashCode())
+            return false;
+
+        if (ints != null && other.ints != null) {
+            for (int i = 0; i < n; i++) {
+                if (ints.get(i) != other.ints.get(i))
+                    return false;
+            }
+        } else if (nested == 0) {
+            for (int i = 0; i < n; i++) {
+                Value<?> v = get(i);
+                if (v == null ? other.get(i) != null : !v.equals(other.get(i)))
+                    return false;
+            }
+        } else {
+            // Met again and not the same list.
+            Map<Value<?>, Boolean> inner = enter(this, path);
+            if (inner == null)
+                return false;
+
+            for (int i = 0; i < n; i++) {
+                if (!same(get(i), other.get(i), inner))
+                    return false;
+            }
+            inner.remove(this);
         }
+
+        return true;
     }
 
     @Override
     public String toString() {
-        StringBuffer sb = new StringBuffer();
-        sb.append("[");
+        return ValuePrinter.toString(this);
+    }
+
+    // Collects the items of a list literal and hands its nodes over to
+    // the value without copying them.
+    public static class Builder {
 
-        for (Value<?> v : this.value) {
-            sb.append(v == null ? "null" : v.toString());
-            sb.append(", ");
+        private ArrayValue list = new ArrayValue();
+
+        public Builder add(Value<?> value) {
+            list.add(value);
+            return this;
+        }
+
+        public ArrayValue build() {
+            ArrayValue result = list;
+            list = null;
+            return result;
         }
 
-        if (sb.length() > 1)
-            sb.setLength(sb.length() - 2);
+    }
+
+    private class View extends AbstractList<Value<?>> implements RandomAccess {
+
+        @Override
+        public Value<?> get(int index) {
+            if (index < 0 || index >= size())
+                throw new IndexOutOfBoundsException(index);
+
+            return ArrayValue.this.get(index);
+        }
+
+        @Override
+        public Value<?> set(int index, Value<?> value) {
+            Value<?> old = get(index);
+            ArrayValue.this.set(index, value);
+            return old;
+        }
+
+        @Override
+        public boolean add(Value<?> value) {
+            ArrayValue.this.add(value);
+            modCount++;
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return ArrayValue.this.size();
+        }
 
-        sb.append("]");
-        return sb.toString();
     }
 
 }
@@ -3,12 +3,19 @@ package interpreter.value;
 
 public class BooleanValue extends Value<Boolean> {
 
+    public static final BooleanValue TRUE = new BooleanValue(true);
+    public static final BooleanValue FALSE = new BooleanValue(false);
+
     private Boolean value;
 
     public BooleanValue(Boolean value) {
         this.value = value;
     }
 
+    public static BooleanValue of(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
     @Override
     public Boolean value() {
         return this.value;
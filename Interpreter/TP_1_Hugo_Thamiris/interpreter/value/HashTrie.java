@@ -0,0 +1,248 @@
+package interpreter.value;
+
+import java.util.Arrays;
+
+// A persistent hash array mapped trie from text keys to values. Each
+// node keeps a 32-bit map of the hash slices it uses and an array of
+// key/value pairs, where a null key marks a child node instead. Keys
+// whose whole hashes collide share a collision node that is searched
+// linearly. Edit tokens work as in Vector.
+final class HashTrie {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    static final HashTrie EMPTY = new HashTrie(null, null, 0);
+
+    private static final class Node {
+
+        final Object edit;
+        final boolean collision;
+        int bitmap;
+        Object[] array;
+
+        Node(Object edit, boolean collision, int bitmap, Object[] array) {
+            this.edit = edit;
+            this.collision = collision;
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+    }
+
+    private final Object edit;
+    private Node root;
+    private int size;
+
+    // Set by put() and remove() when the key was not there / was there.
+    private boolean changed;
+
+    private HashTrie(Object edit, Node root, int size) {
+        this.edit = edit;
+        this.root = root;
+        this.size = size;
+    }
+
+    HashTrie editable(Object edit) {
+        if (this.edit == edit && edit != null)
+            return this;
+
+        return new HashTrie(edit, root, size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    Object get(String key) {
+        int hash = hash(key);
+        Node node = root;
+        int shift = 0;
+        while (node != null) {
+            if (node.collision)
+                return find(node, key);
+
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((node.bitmap & bit) == 0)
+                return null;
+
+            int i = 2 * Integer.bitCount(node.bitmap & (bit - 1));
+            Object k = node.array[i];
+            if (k != null)
+                return key.equals(k) ? node.array[i + 1] : null;
+
+            node = (Node) node.array[i + 1];
+            shift += BITS;
+        }
+
+        return null;
+    }
+
+    // The rest only on an editable trie.
+
+    void put(String key, Object value) {
+        changed = false;
+        if (root == null)
+            root = new Node(edit, false, 0, new Object[0]);
+
+        root = put(root, 0, hash(key), key, value);
+        if (changed)
+            size++;
+    }
+
+    private Node put(Node node, int shift, int hash, String key, Object value) {
+        if (node.collision) {
+            for (int i = 0; i < node.array.length; i += 2) {
+                if (key.equals(node.array[i])) {
+                    Node result = editable(node);
+                    result.array[i + 1] = value;
+                    return result;
+                }
+            }
+
+            changed = true;
+            return insert(node, node.array.length, 0, key, value);
+        }
+
+        int bit = 1 << ((hash >>> shift) & MASK);
+        int i = 2 * Integer.bitCount(node.bitmap & (bit - 1));
+        if ((node.bitmap & bit) == 0) {
+            changed = true;
+            return insert(node, i, bit, key, value);
+        }
+
+        Object k = node.array[i];
+        Object v = node.array[i + 1];
+        Node result;
+        if (k == null) {
+            Node child = put((Node) v, shift + BITS, hash, key, value);
+            if (child == v)
+                return node;
+
+            result = editable(node);
+            result.array[i + 1] = child;
+        } else if (key.equals(k)) {
+            if (v == value)
+                return node;
+
+            result = editable(node);
+            result.array[i + 1] = value;
+        } else {
+            changed = true;
+            result = editable(node);
+            result.array[i] = null;
+            result.array[i + 1] = merge(shift + BITS, (String) k, v, hash, key, value);
+        }
+
+        return result;
+    }
+
+    // A node holding two keys that share the hash slices up to shift.
+    private Node merge(int shift, String k1, Object v1, int h2, String k2, Object v2) {
+        int h1 = hash(k1);
+        if (h1 == h2)
+            return new Node(edit, true, 0, new Object[] { k1, v1, k2, v2 });
+
+        int i1 = (h1 >>> shift) & MASK;
+        int i2 = (h2 >>> shift) & MASK;
+        if (i1 == i2)
+            return new Node(edit, false, 1 << i1,
+                new Object[] { null, merge(shift + BITS, k1, v1, h2, k2, v2) });
+
+        Object[] array = i1 < i2 ? new Object[] { k1, v1, k2, v2 } : new Object[] { k2, v2, k1, v1 };
+        return new Node(edit, false, (1 << i1) | (1 << i2), array);
+    }
+
+    void remove(String key) {
+        changed = false;
+        if (root == null)
+            return;
+
+        root = remove(root, 0, hash(key), key);
+        if (changed)
+            size--;
+    }
+
+    // Returns null when the node is left empty.
+    private Node remove(Node node, int shift, int hash, String key) {
+        if (node.collision) {
+            for (int i = 0; i < node.array.length; i += 2) {
+                if (key.equals(node.array[i])) {
+                    changed = true;
+                    return node.array.length == 2 ? null : delete(node, i, 0);
+                }
+            }
+
+            return node;
+        }
+
+        int bit = 1 << ((hash >>> shift) & MASK);
+        if ((node.bitmap & bit) == 0)
+            return node;
+
+        int i = 2 * Integer.bitCount(node.bitmap & (bit - 1));
+        Object k = node.array[i];
+        if (k == null) {
+            Node child = remove((Node) node.array[i + 1], shift + BITS, hash, key);
+            if (child == node.array[i + 1])
+                return node;
+
+            if (child != null) {
+                Node result = editable(node);
+                result.array[i + 1] = child;
+                return result;
+            }
+        } else if (!key.equals(k)) {
+            return node;
+        } else {
+            changed = true;
+        }
+
+        return node.bitmap == bit ? null : delete(node, i, bit);
+    }
+
+    private Node insert(Node node, int i, int bit, String key, Object value) {
+        Object[] array = new Object[node.array.length + 2];
+        System.arraycopy(node.array, 0, array, 0, i);
+        array[i] = key;
+        array[i + 1] = value;
+        System.arraycopy(node.array, i, array, i + 2, node.array.length - i);
+        return replace(node, node.bitmap | bit, array);
+    }
+
+    private Node delete(Node node, int i, int bit) {
+        Object[] array = new Object[node.array.length - 2];
+        System.arraycopy(node.array, 0, array, 0, i);
+        System.arraycopy(node.array, i + 2, array, i, array.length - i);
+        return replace(node, node.bitmap & ~bit, array);
+    }
+
+    private Node replace(Node node, int bitmap, Object[] array) {
+        if (node.edit != edit)
+            return new Node(edit, node.collision, bitmap, array);
+
+        node.bitmap = bitmap;
+        node.array = array;
+        return node;
+    }
+
+    private Node editable(Node node) {
+        return node.edit == edit ? node :
+            new Node(edit, node.collision, node.bitmap, Arrays.copyOf(node.array, node.array.length));
+    }
+
+    private static Object find(Node node, String key) {
+        for (int i = 0; i < node.array.length; i += 2) {
+            if (key.equals(node.array[i]))
+                return node.array[i + 1];
+        }
+
+        return null;
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -0,0 +1,166 @@
+package interpreter.value;
+
+import java.util.Arrays;
+
+// Vector for lists that hold nothing but ints: the same tree and the
+// same edit tokens, but the leaves and the tail are int arrays, so an
+// item costs 4 bytes instead of a pointer to a NumberValue.
+final class IntVector {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    static final IntVector EMPTY = new IntVector(null, 0, BITS, new Node(null, new Object[WIDTH]), new int[0]);
+
+    // Inner nodes hold Nodes, except one level above the leaves, where
+    // they hold Leafs.
+    private static final class Node {
+
+        final Object edit;
+        final Object[] array;
+
+        Node(Object edit, Object[] array) {
+            this.edit = edit;
+            this.array = array;
+        }
+
+    }
+
+    private static final class Leaf {
+
+        final Object edit;
+        final int[] array;
+
+        Leaf(Object edit, int[] array) {
+            this.edit = edit;
+            this.array = array;
+        }
+
+    }
+
+    private final Object edit;
+    private int size;
+    private int shift;
+    private Node root;
+    private int[] tail;
+
+    private IntVector(Object edit, int size, int shift, Node root, int[] tail) {
+        this.edit = edit;
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    IntVector editable(Object edit) {
+        if (this.edit == edit && edit != null)
+            return this;
+
+        return new IntVector(edit, size, shift, root, Arrays.copyOf(tail, tail.length));
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int index) {
+        if (index >= tailOffset())
+            return tail[index & MASK];
+
+        return leaf(index).array[index & MASK];
+    }
+
+    private Leaf leaf(int index) {
+        Node node = root;
+        for (int level = shift; level > BITS; level -= BITS)
+            node = (Node) node.array[(index >>> level) & MASK];
+
+        return (Leaf) node.array[(index >>> BITS) & MASK];
+    }
+
+    // The rest only on an editable vector.
+
+    void set(int index, int value) {
+        if (index >= tailOffset())
+            tail[index & MASK] = value;
+        else
+            root = set(shift, root, index, value);
+    }
+
+    private Node set(int level, Node node, int index, int value) {
+        Node result = editable(node);
+        int i = (index >>> level) & MASK;
+        if (level == BITS) {
+            Leaf leaf = (Leaf) node.array[i];
+            if (leaf.edit != edit)
+                leaf = new Leaf(edit, leaf.array.clone());
+
+            leaf.array[index & MASK] = value;
+            result.array[i] = leaf;
+        } else {
+            result.array[i] = set(level - BITS, (Node) node.array[i], index, value);
+        }
+
+        return result;
+    }
+
+    void add(int value) {
+        int used = size - tailOffset();
+        if (used < WIDTH) {
+            if (used == tail.length)
+                tail = Arrays.copyOf(tail, Math.max(4, Math.min(WIDTH, used * 2)));
+
+            tail[used] = value;
+            size++;
+            return;
+        }
+
+        Leaf leaf = new Leaf(edit, tail);
+        tail = new int[4];
+        tail[0] = value;
+
+        if ((size >>> BITS) > (1 << shift)) {
+            Node top = new Node(edit, new Object[WIDTH]);
+            top.array[0] = root;
+            top.array[1] = path(shift, leaf);
+            root = top;
+            shift += BITS;
+        } else {
+            root = push(shift, root, leaf);
+        }
+
+        size++;
+    }
+
+    private Node push(int level, Node parent, Leaf leaf) {
+        Node result = editable(parent);
+        int i = ((size - 1) >>> level) & MASK;
+        if (level == BITS) {
+            result.array[i] = leaf;
+        } else {
+            Node child = (Node) parent.array[i];
+            result.array[i] = child == null ? path(level - BITS, leaf) : push(level - BITS, child, leaf);
+        }
+
+        return result;
+    }
+
+    private Object path(int level, Leaf leaf) {
+        if (level == 0)
+            return leaf;
+
+        Node node = new Node(edit, new Object[WIDTH]);
+        node.array[0] = path(level - BITS, leaf);
+        return node;
+    }
+
+    private Node editable(Node node) {
+        return node.edit == edit ? node : new Node(edit, node.array.clone());
+    }
+
+    private int tailOffset() {
+        return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+    }
+
+}
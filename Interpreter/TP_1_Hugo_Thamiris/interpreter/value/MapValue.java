@@ -1,65 +1,399 @@
 package interpreter.value;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
+// A map from names to values that keeps the order the names were first
+// added, like the LinkedHashMap it replaces. Names and values sit in
+// two persistent Vectors; once there are more than a few names a
+// HashTrie gives the position of each one, below that they are simply
+// searched. Removing a name leaves a hole, and the holes are squeezed
+// out once they outnumber the entries. Copies share structure as in
+// ArrayValue.
+//
+// Maps are equal when they have the same entries in any order, and keep
+// their hash as lists do, cycles included.
 public class MapValue extends Value<Map<String, Value<?>>> {
 
-    private Map<String, Value<?>> value;
+    private static final int SMALL = 8;
+
+    private HashTrie index;
+    private Vector keys;
+    private Vector values;
+    private int size;
+    private int holes;
+    private Object owner;
+    private Map<String, Value<?>> view;
+
+    private int modCount;
+    private int nested;
+    private boolean held;
+    private int hash;
+    private int hashed = -1;
+    private int changes;
+
+    public MapValue() {
+        this.keys = Vector.EMPTY;
+        this.values = Vector.EMPTY;
+    }
 
     public MapValue(Map<String, Value<?>> value) {
-        this.value = value;
+        this();
+        for (Map.Entry<String, Value<?>> e : value.entrySet())
+            put(e.getKey(), e.getValue());
     }
 
+    private MapValue(MapValue map) {
+        this.index = map.index;
+        this.keys = map.keys;
+        this.values = map.values;
+        this.size = map.size;
+        this.holes = map.holes;
+        this.nested = map.nested;
+        this.hash = map.hash;
+        this.hashed = map.hashed == map.modCount ? 0 : -1;
+        this.changes = map.changes;
+    }
+
+    // A live view: changes through it change the value.
     @Override
     public Map<String, Value<?>> value() {
-        return this.value;
+        if (view == null)
+            view = new View();
+
+        return view;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Value<?> get(String key) {
+        int pos = find(key);
+        return pos < 0 ? null : (Value<?>) values.get(pos);
+    }
+
+    public boolean containsKey(String key) {
+        return find(key) >= 0;
+    }
+
+    public void put(String key, Value<?> value) {
+        changed();
+        if (ArrayValue.isCollection(value)) {
+            nested++;
+            ArrayValue.hold(value);
+        }
+
+        int pos = find(key);
+        if (pos >= 0) {
+            // Only the values change.
+            values = values.editable(owner());
+            if (ArrayValue.isCollection((Value<?>) values.get(pos)))
+                nested--;
+
+            values.set(pos, value);
+            return;
+        }
+
+        edit();
+        if (index == null && keys.size() >= SMALL) {
+            index = HashTrie.EMPTY.editable(owner);
+            for (int i = 0; i < keys.size(); i++) {
+                if (keys.get(i) != null)
+                    index.put((String) keys.get(i), i);
+            }
+        }
+
+        if (index != null)
+            index.put(key, keys.size());
+
+        keys.add(key);
+        values.add(value);
+        size++;
+    }
+
+    public void remove(String key) {
+        int pos = find(key);
+        if (pos < 0)
+            return;
+
+        changed();
+        if (ArrayValue.isCollection((Value<?>) values.get(pos)))
+            nested--;
+
+        edit();
+        if (index != null)
+            index.remove(key);
+
+        keys.set(pos, null);
+        values.set(pos, null);
+        size--;
+        if (++holes > 32 && holes > size)
+            compact();
+    }
+
+    // A new map with the same entries, in O(1).
+    public MapValue copy() {
+        owner = null;
+        return new MapValue(this);
+    }
+
+    // Positions run from 0 to positions() - 1 in insertion order; the
+    // key at a removed position is null.
+    public int positions() {
+        return keys.size();
+    }
+
+    public String keyAt(int pos) {
+        return (String) keys.get(pos);
+    }
+
+    public Value<?> valueAt(int pos) {
+        return (Value<?>) values.get(pos);
+    }
+
+    // How many of the values are lists or maps.
+    int nested() {
+        return nested;
+    }
+
+    void hold() {
+        held = true;
+    }
+
+    private void changed() {
+        modCount++;
+        if (held)
+            ArrayValue.change();
+    }
+
+    private Object owner() {
+        if (owner == null)
+            owner = new Object();
+
+        return owner;
+    }
+
+    private void edit() {
+        keys = keys.editable(owner());
+        values = values.editable(owner);
+        if (index != null)
+            index = index.editable(owner);
+    }
+
+    // The position of key, or -1.
+    private int find(String key) {
+        if (index == null) {
+            for (int pos = 0; pos < keys.size(); pos++) {
+                if (key.equals(keys.get(pos)))
+                    return pos;
+            }
+
+            return -1;
+        }
+
+        Object pos = index.get(key);
+        return pos == null ? -1 : (Integer) pos;
+    }
+
+    private void compact() {
+        MapValue fresh = new MapValue();
+        for (int pos = 0; pos < keys.size(); pos++) {
+            if (keys.get(pos) != null)
+                fresh.put(keyAt(pos), valueAt(pos));
+        }
+
+        index = fresh.index;
+        keys = fresh.keys;
+        values = fresh.values;
+        size = fresh.size;
+        holes = 0;
+        owner = fresh.owner;
     }
 
     @Override
     public boolean eval() {
-        return !value.isEmpty();
+        return size > 0;
     }
 
     @Override
     public int hashCode() {
-        return this.value.hashCode();
+        return hash(null);
+    }
+
+    int hash(Map<Value<?>, Boolean> path) {
+        int changes = ArrayValue.changes();
+        if (hashed == modCount && (nested == 0 || this.changes == changes))
+            return hash;
+
+        Map<Value<?>, Boolean> inner = null;
+        if (nested > 0) {
+            inner = ArrayValue.enter(this, path);
+            if (inner == null)
+                return ArrayValue.CYCLE;
+        }
+
+        int hash = 0;
+        for (int pos = 0; pos < keys.size(); pos++) {
+            Object k = keys.get(pos);
+            if (k != null)
+                hash += k.hashCode() ^ ArrayValue.hash(valueAt(pos), inner);
+        }
+
+        if (inner == null || ArrayValue.leave(this, inner)) {
+            this.hash = hash;
+            this.hashed = modCount;
+            this.changes = changes;
+        }
+
+        return hash;
     }
 
     @Override
     public boolean equals(Object obj) {
-        if (this == obj) {
+        return equals(obj, null);
+    }
+
+    boolean equals(Object obj, Map<Value<?>, Boolean> path) {
+        if (this == obj)
             return true;
-        } else if (obj instanceof MapValue) {
-            return this.value == ((MapValue) obj).value;
-        } else {
+
+        if (!(obj instanceof MapValue))
             return false;
+
+        MapValue other = (MapValue) obj;
+        if (size != other.size || hashCode() != other.hashCode())
+            return false;
+
+        // Met again and not the same map.
+        Map<Value<?>, Boolean> inner = null;
+        if (nested > 0) {
+            inner = ArrayValue.enter(this, path);
+            if (inner == null)
+                return false;
         }
+
+        for (int pos = 0; pos < keys.size(); pos++) {
+            String k = keyAt(pos);
+            if (k == null)
+                continue;
+
+            int at = other.find(k);
+            if (at < 0 || !ArrayValue.same(valueAt(pos), other.valueAt(at), inner))
+                return false;
+        }
+
+        if (inner != null)
+            inner.remove(this);
+
+        return true;
     }
 
     @Override
     public String toString() {
-        StringBuffer sb = new StringBuffer();
-        sb.append("[");
-
-        if (this.value.isEmpty()) {
-            sb.append(":");
-        } else {
-            for (Map.Entry<String, Value<?>> e : this.value.entrySet()) {
-                String k = e.getKey();
-                Value<?> v = e.getValue();
-
-                sb.append(k);
-                sb.append(":");
-                sb.append(v == null ? "null" : v.toString());
-                sb.append(", ");
-            }
+        return ValuePrinter.toString(this);
+    }
+
+    // Collects the entries of a map literal and hands its nodes over to
+    // the value without copying them.
+    public static class Builder {
+
+        private MapValue map = new MapValue();
+
+        public Builder put(String key, Value<?> value) {
+            map.put(key, value);
+            return this;
+        }
+
+        public MapValue build() {
+            MapValue result = map;
+            map = null;
+            return result;
+        }
+
+    }
+
+    private class View extends AbstractMap<String, Value<?>> {
+
+        @Override
+        public Value<?> get(Object key) {
+            return key instanceof String ? MapValue.this.get((String) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && MapValue.this.containsKey((String) key);
+        }
+
+        @Override
+        public Value<?> put(String key, Value<?> value) {
+            Value<?> old = MapValue.this.get(key);
+            MapValue.this.put(key, value);
+            return old;
+        }
+
+        @Override
+        public Value<?> remove(Object key) {
+            Value<?> old = get(key);
+            if (key instanceof String)
+                MapValue.this.remove((String) key);
+
+            return old;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Set<Map.Entry<String, Value<?>>> entrySet() {
+            return new AbstractSet<Map.Entry<String, Value<?>>>() {
+
+                @Override
+                public Iterator<Map.Entry<String, Value<?>>> iterator() {
+                    return new Iterator<Map.Entry<String, Value<?>>>() {
+
+                        private int pos = skip(0);
+
+                        @Override
+                        public boolean hasNext() {
+                            return pos < keys.size();
+                        }
+
+                        @Override
+                        public Map.Entry<String, Value<?>> next() {
+                            if (!hasNext())
+                                throw new NoSuchElementException();
+
+                            Map.Entry<String, Value<?>> e =
+                                new AbstractMap.SimpleImmutableEntry<String, Value<?>>(keyAt(pos), valueAt(pos));
+                            pos = skip(pos + 1);
+                            return e;
+                        }
+
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+            };
+        }
+
+        private int skip(int pos) {
+            while (pos < keys.size() && keys.get(pos) == null)
+                pos++;
 
-            if (sb.length() > 1)
-                sb.setLength(sb.length() - 2);
+            return pos;
         }
 
-        sb.append("]");
-        return sb.toString();
     }
 
 }
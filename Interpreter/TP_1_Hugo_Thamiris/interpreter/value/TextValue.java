@@ -1,26 +1,102 @@
 package interpreter.value;
 
+import java.io.IOException;
+import java.io.Writer;
+
 public class TextValue extends Value<String> {
 
+    // Texts shorter than this are concatenated as plain Strings.
+    private static final int MIN_BUFFER = 64;
+
+    // Either value holds the text, or it is the first length chars of
+    // buffer, or both once value() has been asked for. A buffer is only
+    // ever appended to, so a prefix of it never changes: s + t appends t
+    // in place when s ends where the buffer does, and the result shares
+    // the buffer with s. Building a text in a loop is then linear rather
+    // than quadratic.
     private String value;
+    private StringBuilder buffer;
+    private int length;
 
     public TextValue(String value) {
         this.value = value;
+        this.length = value.length();
+    }
+
+    private TextValue(StringBuilder buffer, int length) {
+        this.buffer = buffer;
+        this.length = length;
     }
 
     @Override
     public String value() {
+        if (value == null) {
+            synchronized (buffer) {
+                value = buffer.substring(0, length);
+            }
+        }
+
         return this.value;
     }
 
+    public int length() {
+        return length;
+    }
+
+    // Writes the text without making a String of it first.
+    public void write(Writer out) throws IOException {
+        if (value != null) {
+            out.write(value);
+            return;
+        }
+
+        char[] chunk = new char[Math.min(length, 8192)];
+        for (int start = 0; start < length; start += chunk.length) {
+            int end = Math.min(length, start + chunk.length);
+            synchronized (buffer) {
+                buffer.getChars(start, end, chunk, 0);
+            }
+
+            out.write(chunk, 0, end - start);
+        }
+    }
+
+    public TextValue concat(String text) {
+        StringBuilder sb = buffer;
+        if (sb != null) {
+            synchronized (sb) {
+                if (sb.length() == length) {
+                    sb.append(text);
+                    return new TextValue(sb, sb.length());
+                }
+            }
+        }
+
+        int total = length + text.length();
+        if (total < MIN_BUFFER)
+            return new TextValue(value() + text);
+
+        sb = new StringBuilder(Math.max(MIN_BUFFER, total + (total >> 1)));
+        if (value != null) {
+            sb.append(value);
+        } else {
+            synchronized (buffer) {
+                sb.append(buffer, 0, length);
+            }
+        }
+
+        sb.append(text);
+        return new TextValue(sb, sb.length());
+    }
+
     @Override
     public boolean eval() {
-        return !value.equals("");
+        return length != 0;
     }
 
     @Override
     public int hashCode() {
-        return this.value.hashCode();
+        return value().hashCode();
     }
 
     @Override
@@ -28,7 +104,8 @@ public class TextValue extends Value<String> {
         if (this == obj) {
             return true;
         } else if (obj instanceof TextValue) {
-            return this.value.equals(((TextValue) obj).value);
+            TextValue other = (TextValue) obj;
+            return this.length == other.length && this.value().equals(other.value());
         } else {
             return false;
         }
@@ -36,7 +113,7 @@ public class TextValue extends Value<String> {
 
     @Override
     public String toString() {
-        return this.value.toString();
+        return value();
     }
 
 }
@@ -0,0 +1,138 @@
+package interpreter.value;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+// Writes values the way print shows them straight to a Writer, item by
+// item, so printing a large list or map never builds its whole text in
+// memory. For logs the output can be cut short: lists and maps nested
+// deeper than maxDepth show as [...], and only their first maxItems
+// items are written, followed by "...". A list or map met again inside
+// itself shows as (this List) or (this Map) instead of recursing.
+public class ValuePrinter {
+
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private final Writer out;
+    private final int maxDepth;
+    private final int maxItems;
+
+    // The lists and maps being written; made at the first one.
+    private Map<Value<?>, Boolean> path;
+
+    public ValuePrinter(Writer out) {
+        this(out, UNLIMITED, UNLIMITED);
+    }
+
+    public ValuePrinter(Writer out, int maxDepth, int maxItems) {
+        this.out = out;
+        this.maxDepth = maxDepth;
+        this.maxItems = maxItems;
+    }
+
+    public void print(Value<?> value) throws IOException {
+        print(value, 0);
+    }
+
+    // The whole text of a value, for toString().
+    public static String toString(Value<?> value) {
+        StringWriter text = new StringWriter();
+        try {
+            new ValuePrinter(text).print(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return text.toString();
+    }
+
+    private void print(Value<?> value, int depth) throws IOException {
+        if (value == null) {
+            out.write("null");
+        } else if (value instanceof TextValue) {
+            ((TextValue) value).write(out);
+        } else if (value instanceof ArrayValue) {
+            if (enter(value, "(this List)", depth)) {
+                printList((ArrayValue) value, depth);
+                path.remove(value);
+            }
+        } else if (value instanceof MapValue) {
+            if (enter(value, "(this Map)", depth)) {
+                printMap((MapValue) value, depth);
+                path.remove(value);
+            }
+        } else {
+            out.write(value.toString());
+        }
+    }
+
+    // Whether the contents of a list or map are to be written; if not,
+    // what stands for them has been.
+    private boolean enter(Value<?> value, String cycle, int depth) throws IOException {
+        if (path == null)
+            path = new IdentityHashMap<Value<?>, Boolean>();
+
+        if (path.containsKey(value)) {
+            out.write(cycle);
+            return false;
+        }
+
+        if (depth >= maxDepth) {
+            out.write("[...]");
+            return false;
+        }
+
+        path.put(value, Boolean.TRUE);
+        return true;
+    }
+
+    private void printList(ArrayValue list, int depth) throws IOException {
+        out.write('[');
+        for (int i = 0, n = list.size(); i < n; i++) {
+            if (i > 0)
+                out.write(", ");
+
+            if (i == maxItems) {
+                out.write("...");
+                break;
+            }
+
+            print(list.get(i), depth + 1);
+        }
+
+        out.write(']');
+    }
+
+    private void printMap(MapValue map, int depth) throws IOException {
+        out.write('[');
+        if (map.size() == 0)
+            out.write(':');
+
+        int written = 0;
+        for (int pos = 0; pos < map.positions(); pos++) {
+            String key = map.keyAt(pos);
+            if (key == null)
+                continue;
+
+            if (written > 0)
+                out.write(", ");
+
+            if (written == maxItems) {
+                out.write("...");
+                break;
+            }
+
+            out.write(key);
+            out.write(':');
+            print(map.valueAt(pos), depth + 1);
+            written++;
+        }
+
+        out.write(']');
+    }
+
+}
@@ -0,0 +1,154 @@
+package interpreter.value;
+
+import java.util.Arrays;
+
+// A persistent vector: a tree of 32-wide nodes holding all but the last
+// items, which wait in a separate tail until it fills. Two vectors made
+// from one share every node neither of them has changed since.
+//
+// Changes take an edit token. Nodes created under the same token belong
+// to whoever holds it and are changed in place, so a run of appends or
+// sets by one owner allocates almost nothing; everything else is copied
+// along the path first. Giving up the token (see ArrayValue.copy())
+// makes the whole vector immutable again.
+final class Vector {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final Node EMPTY_NODE = new Node(null, new Object[WIDTH]);
+    static final Vector EMPTY = new Vector(null, 0, BITS, EMPTY_NODE, new Object[0]);
+
+    private static final class Node {
+
+        final Object edit;
+        final Object[] array;
+
+        Node(Object edit, Object[] array) {
+            this.edit = edit;
+            this.array = array;
+        }
+
+    }
+
+    private final Object edit;
+    private int size;
+    private int shift;
+    private Node root;
+    private Object[] tail;
+
+    private Vector(Object edit, int size, int shift, Node root, Object[] tail) {
+        this.edit = edit;
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    // This vector if edit already owns it, or a copy that edit owns.
+    // Only the tail is copied; the nodes are copied as they are changed.
+    Vector editable(Object edit) {
+        if (this.edit == edit && edit != null)
+            return this;
+
+        return new Vector(edit, size, shift, root, Arrays.copyOf(tail, tail.length));
+    }
+
+    int size() {
+        return size;
+    }
+
+    Object get(int index) {
+        if (index >= tailOffset())
+            return tail[index & MASK];
+
+        Node node = root;
+        for (int level = shift; level > 0; level -= BITS)
+            node = (Node) node.array[(index >>> level) & MASK];
+
+        return node.array[index & MASK];
+    }
+
+    // The rest only on an editable vector.
+
+    void set(int index, Object value) {
+        if (index >= tailOffset())
+            tail[index & MASK] = value;
+        else
+            root = set(shift, root, index, value);
+    }
+
+    private Node set(int level, Node node, int index, Object value) {
+        Node result = editable(node);
+        if (level == 0) {
+            result.array[index & MASK] = value;
+        } else {
+            int i = (index >>> level) & MASK;
+            result.array[i] = set(level - BITS, (Node) node.array[i], index, value);
+        }
+
+        return result;
+    }
+
+    void add(Object value) {
+        int used = size - tailOffset();
+        if (used < WIDTH) {
+            // Small vectors keep a small tail.
+            if (used == tail.length)
+                tail = Arrays.copyOf(tail, Math.max(4, Math.min(WIDTH, used * 2)));
+
+            tail[used] = value;
+            size++;
+            return;
+        }
+
+        // The tail is full: it becomes a leaf of the tree.
+        Node leaf = new Node(edit, tail);
+        tail = new Object[4];
+        tail[0] = value;
+
+        if ((size >>> BITS) > (1 << shift)) {
+            Node top = new Node(edit, new Object[WIDTH]);
+            top.array[0] = root;
+            top.array[1] = path(shift, leaf);
+            root = top;
+            shift += BITS;
+        } else {
+            root = push(shift, root, leaf);
+        }
+
+        size++;
+    }
+
+    private Node push(int level, Node parent, Node leaf) {
+        Node result = editable(parent);
+        int i = ((size - 1) >>> level) & MASK;
+        if (level == BITS) {
+            result.array[i] = leaf;
+        } else {
+            Node child = (Node) parent.array[i];
+            result.array[i] = child == null ? path(level - BITS, leaf) : push(level - BITS, child, leaf);
+        }
+
+        return result;
+    }
+
+    private Node path(int level, Node leaf) {
+        if (level == 0)
+            return leaf;
+
+        Node node = new Node(edit, new Object[WIDTH]);
+        node.array[0] = path(level - BITS, leaf);
+        return node;
+    }
+
+    private Node editable(Node node) {
+        return node.edit == edit ? node : new Node(edit, node.array.clone());
+    }
+
+    private int tailOffset() {
+        return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+    }
+
+}
@@ -0,0 +1,437 @@
+package interpreter.vm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import interpreter.command.AssignCommand;
+import interpreter.command.BlocksCommand;
+import interpreter.command.Command;
+import interpreter.command.DeclareCommand;
+import interpreter.command.DeclareListCommand;
+import interpreter.command.ForCommand;
+import interpreter.command.ForeachCommand;
+import interpreter.command.IfCommand;
+import interpreter.command.PrintCommand;
+import interpreter.command.WhileCommand;
+import interpreter.expr.AccessExpr;
+import interpreter.expr.BinaryExpr;
+import interpreter.expr.BinaryOp;
+import interpreter.expr.CastExpr;
+import interpreter.expr.ConstExpr;
+import interpreter.expr.Expr;
+import interpreter.expr.FunctionExpr;
+import interpreter.expr.IntBinaryExpr;
+import interpreter.expr.ListExpr;
+import interpreter.expr.MapExpr;
+import interpreter.expr.SetExpr;
+import interpreter.expr.SwitchExpr;
+import interpreter.expr.UnaryExpr;
+import interpreter.expr.UnaryOp;
+import interpreter.expr.Variable;
+import interpreter.value.BooleanValue;
+import interpreter.value.NumberValue;
+import interpreter.value.TextValue;
+import interpreter.value.Value;
+
+// Translates the tree built by SyntaticAnalysis into a Program. Variables
+// keep the slots the resolver gave them and become the first registers;
+// temporaries are taken above them and given back after each command.
+// Literals used as operands live in registers of their own above all
+// the others, loaded once when the program starts. Operands are
+// evaluated in the same order as the tree walker does, so both print the
+// same things and stop at the same errors.
+public class Compiler {
+
+    private int[] code;
+    private int[] lines;
+    private int size;
+    private List<Value<?>> constants;
+    private Map<Value<?>, Integer> constantIndex;
+    private List<Value<?>> literals;
+    private Map<Value<?>, Integer> literalIndex;
+    private int top;
+    private int registers;
+
+    public Compiler(int frameSize) {
+        this.code = new int[256];
+        this.lines = new int[256];
+        this.size = 0;
+        this.constants = new ArrayList<Value<?>>();
+        this.constantIndex = new HashMap<Value<?>, Integer>();
+        this.literals = new ArrayList<Value<?>>();
+        this.literalIndex = new HashMap<Value<?>, Integer>();
+        this.top = frameSize;
+        this.registers = frameSize;
+    }
+
+    public Program compile(Command cmd) {
+        int prologue = jump(0, Opcode.JUMP);
+        int start = size;
+        command(cmd);
+        emit(0, Opcode.HALT);
+
+        // The literal registers go after the temporaries, now that their
+        // number is known, and are loaded before jumping to the start.
+        int base = registers;
+        relocate(base);
+        patch(prologue);
+        for (int i = 0; i < literals.size(); i++) {
+            Value<?> value = literals.get(i);
+            if (value instanceof NumberValue)
+                emit(0, Opcode.LOADINT, base + i, ((NumberValue) value).intValue());
+            else
+                emit(0, Opcode.LOADK, base + i, constant(value));
+        }
+        emit(0, Opcode.JUMP, start);
+        registers += literals.size();
+
+        return new Program(Arrays.copyOf(code, size), Arrays.copyOf(lines, size),
+            constants.toArray(new Value<?>[constants.size()]), registers);
+    }
+
+    private void command(Command cmd) {
+        int mark = top;
+
+        if (cmd instanceof BlocksCommand) {
+            for (Command c : ((BlocksCommand) cmd).getCommands())
+                command(c);
+        } else if (cmd instanceof DeclareCommand) {
+            DeclareCommand decl = (DeclareCommand) cmd;
+            int slot = decl.getVariable().getSlot();
+            if (decl.getExpr() == null)
+                emit(cmd.getLine(), Opcode.LOADK, slot, constant(null));
+            else
+                expr(decl.getExpr(), slot);
+        } else if (cmd instanceof DeclareListCommand) {
+            DeclareListCommand decl = (DeclareListCommand) cmd;
+            int list = operand(decl.getExpr());
+            List<Variable> vars = decl.getVariables();
+            for (int i = 0; i < vars.size(); i++)
+                emit(cmd.getLine(), Opcode.UNPACK, vars.get(i).getSlot(), list, i);
+        } else if (cmd instanceof PrintCommand) {
+            PrintCommand print = (PrintCommand) cmd;
+            emit(cmd.getLine(), print.isNewline() ? Opcode.PRINTLN : Opcode.PRINT,
+                operand(print.getExpr()));
+        } else if (cmd instanceof IfCommand) {
+            IfCommand ifCmd = (IfCommand) cmd;
+            int otherwise = jumpUnless(ifCmd.getCond());
+            command(ifCmd.getThen());
+            if (ifCmd.getElse() == null) {
+                patch(otherwise);
+            } else {
+                int end = jump(cmd.getLine(), Opcode.JUMP);
+                patch(otherwise);
+                command(ifCmd.getElse());
+                patch(end);
+            }
+        } else if (cmd instanceof WhileCommand) {
+            WhileCommand loop = (WhileCommand) cmd;
+            int start = size;
+            int exit = jumpUnless(loop.getCond());
+            top = mark;
+            command(loop.getBody());
+            emit(cmd.getLine(), Opcode.JUMP, start);
+            patch(exit);
+        } else if (cmd instanceof ForCommand) {
+            ForCommand loop = (ForCommand) cmd;
+            if (loop.getInit() != null)
+                command(loop.getInit());
+
+            int start = size;
+            int exit = -1;
+            if (loop.getCond() != null) {
+                exit = jumpUnless(loop.getCond());
+                top = mark;
+            }
+
+            command(loop.getBody());
+            if (loop.getUpdate() != null)
+                command(loop.getUpdate());
+
+            emit(cmd.getLine(), Opcode.JUMP, start);
+            if (exit >= 0)
+                patch(exit);
+        } else if (cmd instanceof ForeachCommand) {
+            ForeachCommand loop = (ForeachCommand) cmd;
+            int list = temp();
+            expr(loop.getExpr(), list);
+            emit(cmd.getLine(), Opcode.CHECKLIST, list);
+
+            int index = temp();
+            emit(cmd.getLine(), Opcode.LOADINT, index, 0);
+
+            int start = size;
+            emit(cmd.getLine(), Opcode.ITER, loop.getVariable().getSlot(), list, index, -1);
+            int exit = size - 1;
+            command(loop.getBody());
+            emit(cmd.getLine(), Opcode.JUMP, start);
+            patch(exit);
+        } else if (cmd instanceof AssignCommand) {
+            assign((AssignCommand) cmd);
+        } else {
+            throw new IllegalStateException("Unknown command " + cmd.getClass().getName());
+        }
+
+        top = mark;
+    }
+
+    // Mirrors AssignCommand: the right side is evaluated before the target
+    // of a plain assignment, and a compound assignment to an access
+    // evaluates its base and index once, reads through them, evaluates
+    // the right side and writes back through the same registers.
+    private void assign(AssignCommand cmd) {
+        int line = cmd.getLine();
+        SetExpr left = cmd.getLeft();
+        BinaryOp op = cmd.getOp();
+
+        if (left == null) {
+            operand(cmd.getRight());
+        } else if (left instanceof Variable) {
+            int slot = ((Variable) left).getSlot();
+            if (op == null) {
+                expr(cmd.getRight(), slot);
+            } else {
+                int right = operand(cmd.getRight());
+                emit(line, Opcode.binary(op), slot, slot, right);
+            }
+        } else if (left instanceof AccessExpr) {
+            AccessExpr access = (AccessExpr) left;
+            if (op == null) {
+                int value = operand(cmd.getRight());
+                int base = operand(access.getBase());
+                int index = operand(access.getIndex());
+                emit(access.getLine(), Opcode.SET, base, index, value);
+            } else {
+                int base = operand(access.getBase());
+                int index = operand(access.getIndex());
+                int old = temp();
+                emit(access.getLine(), Opcode.GET, old, base, index);
+                int right = operand(cmd.getRight());
+                int value = temp();
+                emit(line, Opcode.binary(op), value, old, right);
+                emit(access.getLine(), Opcode.SET, base, index, value);
+            }
+        } else {
+            throw new IllegalStateException("Unknown target " + left.getClass().getName());
+        }
+    }
+
+    // The register that holds the value of the expression: the slot
+    // itself for a variable, a new temporary otherwise.
+    private int operand(Expr expr) {
+        if (expr instanceof Variable)
+            return ((Variable) expr).getSlot();
+
+        if (expr instanceof ConstExpr)
+            return literal(((ConstExpr) expr).getValue());
+
+        int dst = temp();
+        expr(expr, dst);
+        return dst;
+    }
+
+    private void expr(Expr expr, int dst) {
+        int line = expr.getLine();
+
+        if (expr instanceof ConstExpr) {
+            Value<?> value = ((ConstExpr) expr).getValue();
+            if (value instanceof NumberValue)
+                emit(line, Opcode.LOADINT, dst, ((NumberValue) value).intValue());
+            else
+                emit(line, Opcode.LOADK, dst, constant(value));
+        } else if (expr instanceof Variable) {
+            int slot = ((Variable) expr).getSlot();
+            if (slot != dst)
+                emit(line, Opcode.MOVE, dst, slot);
+        } else if (expr instanceof BinaryExpr) {
+            BinaryExpr bin = (BinaryExpr) expr;
+            if (bin.getOp() == BinaryOp.AND || bin.getOp() == BinaryOp.OR)
+                logical(bin, dst);
+            else
+                binary(line, bin.getLeft(), bin.getOp(), bin.getRight(), dst);
+        } else if (expr instanceof IntBinaryExpr) {
+            IntBinaryExpr bin = (IntBinaryExpr) expr;
+            binary(line, bin.getLeft(), bin.getOp(), bin.getRight(), dst);
+        } else if (expr instanceof UnaryExpr) {
+            UnaryExpr un = (UnaryExpr) expr;
+            int src = operand(un.getExpr());
+            emit(line, un.getOp() == UnaryOp.NOT ? Opcode.NOT : Opcode.NEG, dst, src);
+        } else if (expr instanceof CastExpr) {
+            CastExpr cast = (CastExpr) expr;
+            emit(line, Opcode.CAST, dst, operand(cast.getExpr()), cast.getOp().ordinal());
+        } else if (expr instanceof FunctionExpr) {
+            FunctionExpr fn = (FunctionExpr) expr;
+            emit(line, Opcode.CALL, dst, operand(fn.getExpr()), fn.getOp().ordinal());
+        } else if (expr instanceof AccessExpr) {
+            AccessExpr access = (AccessExpr) expr;
+            int base = operand(access.getBase());
+            int index = operand(access.getIndex());
+            emit(line, Opcode.GET, dst, base, index);
+        } else if (expr instanceof ListExpr) {
+            // Built apart so that dst may appear among the items.
+            int list = temp();
+            emit(line, Opcode.NEWLIST, list);
+            for (Expr item : ((ListExpr) expr).getItems())
+                emit(line, Opcode.APPEND, list, operand(item));
+
+            emit(line, Opcode.MOVE, dst, list);
+        } else if (expr instanceof MapExpr) {
+            int map = temp();
+            emit(line, Opcode.NEWMAP, map);
+            MapExpr items = (MapExpr) expr;
+            for (int i = 0; i < items.getItems().size(); i++) {
+                int value = operand(items.getItems().get(i));
+                emit(line, Opcode.PUT, map, constant(new TextValue(items.getNames().get(i))), value);
+            }
+
+            emit(line, Opcode.MOVE, dst, map);
+        } else if (expr instanceof SwitchExpr) {
+            switchExpr((SwitchExpr) expr, dst);
+        } else {
+            throw new IllegalStateException("Unknown expression " + expr.getClass().getName());
+        }
+    }
+
+    private void binary(int line, Expr left, BinaryOp op, Expr right, int dst) {
+        int a = operand(left);
+        int b = operand(right);
+        emit(line, Opcode.binary(op), dst, a, b);
+    }
+
+    // Jumps when the condition is false; a comparison is tested and
+    // branched on by a single instruction.
+    private int jumpUnless(Expr cond) {
+        if (cond instanceof BinaryExpr) {
+            BinaryExpr bin = (BinaryExpr) cond;
+            Opcode op = Opcode.jumpUnless(bin.getOp());
+            if (op != null) {
+                int a = operand(bin.getLeft());
+                int b = operand(bin.getRight());
+                return jump(bin.getLine(), op, a, b);
+            }
+        }
+
+        return jump(cond.getLine(), Opcode.JUMPF, operand(cond));
+    }
+
+    // a && b and a || b give true or false and skip b when a decides.
+    private void logical(BinaryExpr bin, int dst) {
+        int line = bin.getLine();
+        Opcode test = bin.getOp() == BinaryOp.AND ? Opcode.JUMPF : Opcode.JUMPT;
+
+        int first = jump(line, test, operand(bin.getLeft()));
+        int second = jump(line, test, operand(bin.getRight()));
+        boolean and = bin.getOp() == BinaryOp.AND;
+        emit(line, Opcode.LOADK, dst, constant(BooleanValue.of(and)));
+        int end = jump(line, Opcode.JUMP);
+        patch(first);
+        patch(second);
+        emit(line, Opcode.LOADK, dst, constant(BooleanValue.of(!and)));
+        patch(end);
+    }
+
+    private void switchExpr(SwitchExpr sw, int dst) {
+        int line = sw.getLine();
+        int value = temp();
+        expr(sw.getExpr(), value);
+
+        List<Integer> ends = new ArrayList<Integer>();
+        List<Expr> keys = sw.getKeys();
+        for (int i = 0; i < keys.size(); i++) {
+            int key = operand(keys.get(i));
+            emit(line, Opcode.JUMPNE, value, key, -1);
+            int next = size - 1;
+            expr(sw.getValues().get(i), dst);
+            ends.add(jump(line, Opcode.JUMP));
+            patch(next);
+        }
+
+        if (sw.getDefault() != null)
+            expr(sw.getDefault(), dst);
+        else
+            emit(line, Opcode.LOADK, dst, constant(null));
+
+        for (int end : ends)
+            patch(end);
+    }
+
+    private int temp() {
+        int r = top++;
+        if (top > registers)
+            registers = top;
+
+        return r;
+    }
+
+    // Constants are immutable, so equal ones share an entry.
+    private int constant(Value<?> value) {
+        Integer index = constantIndex.get(value);
+        if (index == null) {
+            index = constants.size();
+            constants.add(value);
+            constantIndex.put(value, index);
+        }
+
+        return index;
+    }
+
+    // Literal registers are numbered -1, -2, ... until relocate() moves
+    // them above the other registers.
+    private int literal(Value<?> value) {
+        Integer index = literalIndex.get(value);
+        if (index == null) {
+            index = literals.size();
+            literals.add(value);
+            literalIndex.put(value, index);
+        }
+
+        return -index - 1;
+    }
+
+    private void relocate(int base) {
+        Opcode[] opcodes = Opcode.values();
+        int pc = 0;
+        while (pc < size) {
+            Opcode op = opcodes[code[pc]];
+            for (int i = 0; i < op.operands(); i++) {
+                int at = pc + 1 + i;
+                if (op.operand(i) == 'r' && code[at] < 0)
+                    code[at] = base - code[at] - 1;
+            }
+
+            pc += 1 + op.operands();
+        }
+    }
+
+    // Emits a jump whose target is still unknown and returns the position
+    // of the operand to patch.
+    private int jump(int line, Opcode op, int... operands) {
+        int[] all = Arrays.copyOf(operands, operands.length + 1);
+        all[operands.length] = -1;
+        emit(line, op, all);
+        return size - 1;
+    }
+
+    // Points the jump at the next instruction.
+    private void patch(int operand) {
+        code[operand] = size;
+    }
+
+    private void emit(int line, Opcode op, int... operands) {
+        if (size + operands.length + 1 > code.length) {
+            code = Arrays.copyOf(code, code.length * 2 + operands.length);
+            lines = Arrays.copyOf(lines, code.length);
+        }
+
+        lines[size] = line;
+        code[size++] = op.ordinal();
+        for (int operand : operands) {
+            lines[size] = line;
+            code[size++] = operand;
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+package interpreter.vm;
+
+import interpreter.expr.BinaryOp;
+
+// Instructions of the register machine. Each one is stored as its
+// ordinal followed by its operands, all in the same int array. The
+// signature tells what each operand is: r a register, k an index into
+// the constants, n a plain number and t the address of an instruction.
+public enum Opcode {
+    LOADK("rk"),                    // r = constants[k]
+    LOADINT("rn"),                  // r = n, unboxed
+    MOVE("rr"),                     // r = r
+
+    ADD("rrr", BinaryOp.ADD),       // r = r + r
+    SUB("rrr", BinaryOp.SUB),
+    MUL("rrr", BinaryOp.MUL),
+    DIV("rrr", BinaryOp.DIV),
+    MOD("rrr", BinaryOp.MOD),
+    POW("rrr", BinaryOp.POWER),
+    LT("rrr", BinaryOp.LOWER),
+    GT("rrr", BinaryOp.GREATER),
+    LE("rrr", BinaryOp.LOWER_EQUAL),
+    GE("rrr", BinaryOp.GREATER_EQUAL),
+    EQ("rrr", BinaryOp.EQUALS),
+    NE("rrr", BinaryOp.NOT_EQUALS),
+    IN("rrr", BinaryOp.CONTAINS),
+    NOTIN("rrr", BinaryOp.NOT_CONTAINS),
+    NOT("rr"),                      // r = !r
+    NEG("rr"),                      // r = -r
+    CAST("rrn"),                    // r = r as CastOp[n]
+    CALL("rrn"),                    // r = FunctionOp[n](r)
+
+    NEWLIST("r"),                   // r = []
+    APPEND("rr"),                   // r.add(r)
+    NEWMAP("r"),                    // r = [:]
+    PUT("rkr"),                     // r[constants[k]] = r
+    GET("rrr"),                     // r = r[r]
+    SET("rrr"),                     // r[r] = r
+    UNPACK("rrn"),                  // r = r[n] of a list, null past its end
+
+    JUMP("t"),                      // goto t
+    JUMPF("rt"),                    // if (!r) goto t
+    JUMPT("rt"),                    // if (r) goto t
+    JUMPNE("rrt"),                  // if (r != r) goto t, as in switch
+    JUMPFLT("rrt", BinaryOp.LOWER), // if (!(r < r)) goto t
+    JUMPFGT("rrt", BinaryOp.GREATER),
+    JUMPFLE("rrt", BinaryOp.LOWER_EQUAL),
+    JUMPFGE("rrt", BinaryOp.GREATER_EQUAL),
+    JUMPFEQ("rrt", BinaryOp.EQUALS),
+    JUMPFNE("rrt", BinaryOp.NOT_EQUALS),
+    CHECKLIST("r"),                 // aborts unless r is a list
+    ITER("rrrt"),                   // r = list r[r++], or goto t at its end
+
+    PRINT("r"),
+    PRINTLN("r"),
+    HALT("");
+
+    private final String signature;
+    private final BinaryOp op;
+
+    private Opcode(String signature) {
+        this(signature, null);
+    }
+
+    private Opcode(String signature, BinaryOp op) {
+        this.signature = signature;
+        this.op = op;
+    }
+
+    public int operands() {
+        return signature.length();
+    }
+
+    // 'r', 'k', 'n' or 't' for the operand at index (from 0).
+    public char operand(int index) {
+        return signature.charAt(index);
+    }
+
+    // The operator of a binary instruction or of a compare-and-jump, null
+    // for the others.
+    public BinaryOp binaryOp() {
+        return op;
+    }
+
+    // The instruction that computes op.
+    public static Opcode binary(BinaryOp op) {
+        for (Opcode opcode : values()) {
+            if (opcode.op == op && opcode.signature.equals("rrr"))
+                return opcode;
+        }
+
+        throw new IllegalArgumentException("No instruction for " + op);
+    }
+
+    // The instruction that jumps when the comparison op is false, or null
+    // if op is not a comparison.
+    public static Opcode jumpUnless(BinaryOp op) {
+        for (Opcode opcode : values()) {
+            if (opcode.op == op && opcode.signature.equals("rrt"))
+                return opcode;
+        }
+
+        return null;
+    }
+
+}
@@ -0,0 +1,65 @@
+package interpreter.vm;
+
+import interpreter.value.Value;
+
+// A compiled script: the instructions, the line of each instruction (for
+// error messages), the constants and the number of registers, of which
+// the first ones are the variable slots of the frame.
+public class Program {
+
+    private static final Opcode[] OPCODES = Opcode.values();
+
+    private int[] code;
+    private int[] lines;
+    private Value<?>[] constants;
+    private int registers;
+
+    public Program(int[] code, int[] lines, Value<?>[] constants, int registers) {
+        this.code = code;
+        this.lines = lines;
+        this.constants = constants;
+        this.registers = registers;
+    }
+
+    public int[] code() {
+        return code;
+    }
+
+    public int[] lines() {
+        return lines;
+    }
+
+    public Value<?>[] constants() {
+        return constants;
+    }
+
+    public int registers() {
+        return registers;
+    }
+
+    public String disassemble() {
+        StringBuilder sb = new StringBuilder();
+        int pc = 0;
+        while (pc < code.length) {
+            Opcode op = OPCODES[code[pc]];
+            sb.append(String.format("%5d  %02d  %-9s", pc, lines[pc], op));
+            for (int i = 0; i < op.operands(); i++) {
+                sb.append(' ');
+                if (op.operand(i) == 'r')
+                    sb.append('r');
+                sb.append(code[pc + 1 + i]);
+            }
+
+            for (int i = 0; i < op.operands(); i++) {
+                if (op.operand(i) == 'k')
+                    sb.append("    ; ").append(constants[code[pc + 1 + i]]);
+            }
+
+            sb.append('\n');
+            pc += 1 + op.operands();
+        }
+
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,289 @@
+package interpreter.vm;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+
+import interpreter.expr.CastOp;
+import interpreter.expr.FunctionOp;
+import interpreter.value.BooleanValue;
+import interpreter.value.NumberValue;
+import interpreter.value.TextValue;
+import interpreter.value.Value;
+
+// Compiled programs kept on disk, one file per source, named after the
+// SHA-256 of the source text. Running the same script again maps its
+// file and reads the Program back without lexing, parsing, optimizing
+// or compiling.
+//
+// A file is, in big-endian ints:
+//
+//     magic, version, stamp, checksum, registers,
+//     code length, code..., lines...,
+//     constant count, then per constant a tag byte and its value
+//
+// where a number is an int and a text its length and chars, and the
+// checksum is the CRC-32 of everything after it. The stamp
+// is a hash of the instruction set and of the CastOp and FunctionOp
+// operands, so a file written before any of them changed is stale and
+// compiled again, as is one that does not read back whole or whose code
+// does not verify.
+public class ProgramCache {
+
+    private static final int MAGIC = 0x4d474301; // "MGC" 1
+    private static final int VERSION = 2;
+    private static final int STAMP = stamp();
+
+    private static final Opcode[] OPCODES = Opcode.values();
+    private static final CastOp[] CASTS = CastOp.values();
+    private static final FunctionOp[] FUNCTIONS = FunctionOp.values();
+
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte NUMBER = 3;
+    private static final byte TEXT = 4;
+
+    private final Path directory;
+
+    public ProgramCache(Path directory) {
+        this.directory = directory;
+    }
+
+    // The name a source is kept under. Programs compiled with and without
+    // the optimizer differ, so they are kept apart.
+    public static String key(CharSequence source, boolean optimized) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(source.toString().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) (optimized ? 1 : 0));
+
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest())
+                sb.append(String.format("%02x", b));
+
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // The program kept under key, or null if there is none or it is stale.
+    public Program get(String key) throws IOException {
+        try (FileChannel channel = FileChannel.open(file(key), StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    // Writes to a temporary file first and moves it into place, so that
+    // a run reading the cache at the same time never sees half a file.
+    public void put(String key, Program program) throws IOException {
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, key, ".tmp");
+        try {
+            Files.write(temp, write(program));
+            Files.move(temp, file(key), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Path file(String key) {
+        return directory.resolve(key + ".mgc");
+    }
+
+    // Every count is checked against what is left of the file before
+    // anything is allocated from it, and the code is checked by verify()
+    // before the VM, which trusts its input, ever runs it.
+    private static Program read(ByteBuffer in) {
+        try {
+            if (in.getInt() != MAGIC || in.getInt() != VERSION || in.getInt() != STAMP)
+                return null;
+
+            int checksum = in.getInt();
+            if (checksum != checksum(in.slice()))
+                return null;
+
+            int registers = in.getInt();
+            int length = in.getInt();
+            if (registers < 0 || length < 0 || length > in.remaining() / 8)
+                return null;
+
+            int[] code = new int[length];
+            int[] lines = new int[length];
+            in.asIntBuffer().get(code).get(lines);
+            in.position(in.position() + 8 * length);
+
+            int count = in.getInt();
+            if (count < 0 || count > in.remaining())
+                return null;
+
+            Value<?>[] constants = new Value<?>[count];
+            for (int i = 0; i < constants.length; i++) {
+                byte tag = in.get();
+                if (tag == NUMBER) {
+                    constants[i] = NumberValue.of(in.getInt());
+                } else if (tag == TEXT) {
+                    int chars = in.getInt();
+                    if (chars < 0 || chars > in.remaining() / 2)
+                        return null;
+
+                    char[] text = new char[chars];
+                    in.asCharBuffer().get(text);
+                    in.position(in.position() + 2 * chars);
+                    constants[i] = new TextValue(new String(text));
+                } else if (tag == FALSE || tag == TRUE) {
+                    constants[i] = BooleanValue.of(tag == TRUE);
+                } else if (tag != NULL) {
+                    return null;
+                }
+            }
+
+            if (in.hasRemaining())
+                return null;
+
+            int used = verify(code, constants, registers);
+            if (used < 0)
+                return null;
+
+            // Registers no instruction names are never read nor written,
+            // so a count larger than the code needs is not allocated.
+            return new Program(code, lines, constants, used);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // The number of registers the code names, or -1 unless every opcode
+    // is known, every operand is in range and every jump lands on an
+    // instruction. The code must end in HALT or JUMP, so that no
+    // instruction runs past it.
+    private static int verify(int[] code, Value<?>[] constants, int registers) {
+        boolean[] starts = new boolean[code.length];
+        int used = 0;
+        Opcode op = null;
+        int pc = 0;
+        while (pc < code.length) {
+            if (code[pc] < 0 || code[pc] >= OPCODES.length)
+                return -1;
+
+            op = OPCODES[code[pc]];
+            if (pc + op.operands() >= code.length)
+                return -1;
+
+            starts[pc] = true;
+            for (int i = 0; i < op.operands(); i++) {
+                int value = code[pc + 1 + i];
+                switch (op.operand(i)) {
+                    case 'r':
+                        if (value < 0 || value >= registers)
+                            return -1;
+                        used = Math.max(used, value + 1);
+                        break;
+                    case 'k':
+                        if (value < 0 || value >= constants.length)
+                            return -1;
+                        if (op == Opcode.PUT && !(constants[value] instanceof TextValue))
+                            return -1;
+                        break;
+                    case 'n':
+                        if (op == Opcode.CAST ? value < 0 || value >= CASTS.length :
+                                op == Opcode.CALL ? value < 0 || value >= FUNCTIONS.length :
+                                op == Opcode.UNPACK && value < 0)
+                            return -1;
+                        break;
+                    default:
+                        if (value < 0 || value >= code.length)
+                            return -1;
+                        break;
+                }
+            }
+
+            pc += 1 + op.operands();
+        }
+
+        if (op != Opcode.HALT && op != Opcode.JUMP)
+            return -1;
+
+        for (pc = 0; pc < code.length; pc += 1 + OPCODES[code[pc]].operands()) {
+            Opcode at = OPCODES[code[pc]];
+            for (int i = 0; i < at.operands(); i++) {
+                if (at.operand(i) == 't' && !starts[code[pc + 1 + i]])
+                    return -1;
+            }
+        }
+
+        return used;
+    }
+
+    private static byte[] write(Program program) {
+        int size = 7 * 4 + 8 * program.code().length;
+        for (Value<?> value : program.constants())
+            size += 1 + (value instanceof NumberValue ? 4 :
+                value instanceof TextValue ? 4 + 2 * ((TextValue) value).length() : 0);
+
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(MAGIC).putInt(VERSION).putInt(STAMP).putInt(0).putInt(program.registers());
+        out.putInt(program.code().length);
+        out.asIntBuffer().put(program.code()).put(program.lines());
+        out.position(out.position() + 8 * program.code().length);
+
+        out.putInt(program.constants().length);
+        for (Value<?> value : program.constants()) {
+            if (value == null) {
+                out.put(NULL);
+            } else if (value instanceof NumberValue) {
+                out.put(NUMBER).putInt(((NumberValue) value).intValue());
+            } else if (value instanceof TextValue) {
+                String text = ((TextValue) value).value();
+                out.put(TEXT).putInt(text.length());
+                out.asCharBuffer().put(text);
+                out.position(out.position() + 2 * text.length());
+            } else if (value instanceof BooleanValue) {
+                out.put(((BooleanValue) value).value() ? TRUE : FALSE);
+            } else {
+                throw new IllegalArgumentException("Constant cannot be cached: " + value);
+            }
+        }
+
+        out.putInt(12, checksum(ByteBuffer.wrap(out.array(), 16, size - 16)));
+        return out.array();
+    }
+
+    private static int checksum(ByteBuffer bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private static int stamp() {
+        StringBuilder sb = new StringBuilder();
+        for (Opcode op : Opcode.values()) {
+            sb.append(op.name()).append(':');
+            for (int i = 0; i < op.operands(); i++)
+                sb.append(op.operand(i));
+            sb.append(op.binaryOp()).append(';');
+        }
+
+        for (CastOp op : CastOp.values())
+            sb.append(op.name()).append(';');
+        for (FunctionOp op : FunctionOp.values())
+            sb.append(op.name()).append(';');
+
+        return sb.toString().hashCode();
+    }
+
+}
@@ -0,0 +1,54 @@
+package interpreter.vm;
+
+import interpreter.value.NumberValue;
+import interpreter.value.TextValue;
+import interpreter.value.Value;
+
+// The registers of the VM. Every number is kept unboxed, whether it was
+// computed by an instruction or read from a list, so an int test is a
+// single comparison.
+final class Registers {
+
+    // Marks a register whose value is in ints; never seen outside.
+    private static final Value<?> INT = new TextValue("int");
+
+    private final Value<?>[] values;
+    private final int[] ints;
+
+    Registers(int size) {
+        this.values = new Value<?>[size];
+        this.ints = new int[size];
+    }
+
+    boolean isInt(int r) {
+        return values[r] == INT;
+    }
+
+    // Only valid when isInt(r) is true.
+    int readInt(int r) {
+        return ints[r];
+    }
+
+    // Storing a reference costs a GC write barrier, so the mark is only
+    // stored when the register did not hold an int already.
+    void writeInt(int r, int value) {
+        if (values[r] != INT)
+            values[r] = INT;
+        ints[r] = value;
+    }
+
+    Value<?> read(int r) {
+        Value<?> value = values[r];
+        return value == INT ? NumberValue.of(ints[r]) : value;
+    }
+
+    void write(int r, Value<?> value) {
+        if (value instanceof NumberValue) {
+            values[r] = INT;
+            ints[r] = ((NumberValue) value).intValue();
+        } else {
+            values[r] = value;
+        }
+    }
+
+}
@@ -0,0 +1,281 @@
+package interpreter.vm;
+
+import java.util.Objects;
+
+import interpreter.expr.AccessExpr;
+import interpreter.expr.BinaryExpr;
+import interpreter.expr.BinaryOp;
+import interpreter.expr.CastExpr;
+import interpreter.expr.CastOp;
+import interpreter.expr.FunctionExpr;
+import interpreter.expr.FunctionOp;
+import interpreter.expr.UnaryExpr;
+import interpreter.expr.UnaryOp;
+import interpreter.util.Utils;
+import interpreter.value.ArrayValue;
+import interpreter.value.BooleanValue;
+import interpreter.value.MapValue;
+import interpreter.value.TextValue;
+import interpreter.value.Value;
+
+// Runs a Program in a single dispatch loop. Numbers stay unboxed in the
+// registers between instructions; the operators themselves are the same
+// static methods the tree walker uses.
+public class VM {
+
+    private static final Opcode[] OPCODES = Opcode.values();
+    private static final CastOp[] CASTS = CastOp.values();
+    private static final FunctionOp[] FUNCTIONS = FunctionOp.values();
+
+    public void run(Program program) {
+        Registers r = new Registers(program.registers());
+        int[] code = program.code();
+        int[] lines = program.lines();
+        Value<?>[] constants = program.constants();
+
+        int pc = 0;
+        while (true) {
+            Opcode op = OPCODES[code[pc]];
+            switch (op) {
+                case LOADK:
+                    r.write(code[pc + 1], constants[code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case LOADINT:
+                    r.writeInt(code[pc + 1], code[pc + 2]);
+                    pc += 3;
+                    break;
+                case MOVE: {
+                    int src = code[pc + 2];
+                    if (r.isInt(src))
+                        r.writeInt(code[pc + 1], r.readInt(src));
+                    else
+                        r.write(code[pc + 1], r.read(src));
+                    pc += 3;
+                    break;
+                }
+                case ADD: {
+                    int a = code[pc + 2];
+                    int b = code[pc + 3];
+                    if (r.isInt(a) && r.isInt(b))
+                        r.writeInt(code[pc + 1], r.readInt(a) + r.readInt(b));
+                    else
+                        r.write(code[pc + 1], BinaryExpr.apply(BinaryOp.ADD, lines[pc], r.read(a), r.read(b)));
+                    pc += 4;
+                    break;
+                }
+                case SUB: {
+                    int a = code[pc + 2];
+                    int b = code[pc + 3];
+                    if (r.isInt(a) && r.isInt(b))
+                        r.writeInt(code[pc + 1], r.readInt(a) - r.readInt(b));
+                    else
+                        r.write(code[pc + 1], BinaryExpr.apply(BinaryOp.SUB, lines[pc], r.read(a), r.read(b)));
+                    pc += 4;
+                    break;
+                }
+                case MUL:
+                case DIV:
+                case MOD:
+                case POW: {
+                    int a = code[pc + 2];
+                    int b = code[pc + 3];
+                    if (r.isInt(a) && r.isInt(b)) {
+                        r.writeInt(code[pc + 1], BinaryExpr.arith(op.binaryOp(), lines[pc],
+                            r.readInt(a), r.readInt(b)));
+                    } else {
+                        r.write(code[pc + 1], BinaryExpr.apply(op.binaryOp(), lines[pc],
+                            r.read(a), r.read(b)));
+                    }
+                    pc += 4;
+                    break;
+                }
+                case LT:
+                case GT:
+                case LE:
+                case GE:
+                case EQ:
+                case NE: {
+                    int a = code[pc + 2];
+                    int b = code[pc + 3];
+                    if (r.isInt(a) && r.isInt(b)) {
+                        r.write(code[pc + 1], BooleanValue.of(compare(op.binaryOp(),
+                            r.readInt(a), r.readInt(b))));
+                    } else {
+                        r.write(code[pc + 1], BinaryExpr.apply(op.binaryOp(), lines[pc],
+                            r.read(a), r.read(b)));
+                    }
+                    pc += 4;
+                    break;
+                }
+                case IN:
+                case NOTIN:
+                    r.write(code[pc + 1], BinaryExpr.apply(op.binaryOp(), lines[pc],
+                        r.read(code[pc + 2]), r.read(code[pc + 3])));
+                    pc += 4;
+                    break;
+                case NOT:
+                    r.write(code[pc + 1], BooleanValue.of(!truth(r, code[pc + 2])));
+                    pc += 3;
+                    break;
+                case NEG: {
+                    int src = code[pc + 2];
+                    if (r.isInt(src))
+                        r.writeInt(code[pc + 1], -r.readInt(src));
+                    else
+                        r.write(code[pc + 1], UnaryExpr.apply(UnaryOp.NEG, lines[pc], r.read(src)));
+                    pc += 3;
+                    break;
+                }
+                case CAST:
+                    r.write(code[pc + 1], CastExpr.apply(CASTS[code[pc + 3]], lines[pc],
+                        r.read(code[pc + 2])));
+                    pc += 4;
+                    break;
+                case CALL:
+                    r.write(code[pc + 1], FunctionExpr.apply(FUNCTIONS[code[pc + 3]], lines[pc],
+                        r.read(code[pc + 2])));
+                    pc += 4;
+                    break;
+                case NEWLIST:
+                    r.write(code[pc + 1], new ArrayValue());
+                    pc += 2;
+                    break;
+                case APPEND:
+                    ((ArrayValue) r.read(code[pc + 1])).add(r.read(code[pc + 2]));
+                    pc += 3;
+                    break;
+                case NEWMAP:
+                    r.write(code[pc + 1], new MapValue());
+                    pc += 2;
+                    break;
+                case PUT:
+                    ((MapValue) r.read(code[pc + 1])).put(
+                        ((TextValue) constants[code[pc + 2]]).value(), r.read(code[pc + 3]));
+                    pc += 4;
+                    break;
+                case GET: {
+                    Value<?> base = r.read(code[pc + 2]);
+                    int index = code[pc + 3];
+                    if (base instanceof ArrayValue && r.isInt(index))
+                        r.write(code[pc + 1], AccessExpr.item((ArrayValue) base, r.readInt(index)));
+                    else
+                        r.write(code[pc + 1], AccessExpr.get(lines[pc], base, r.read(index)));
+                    pc += 4;
+                    break;
+                }
+                case SET: {
+                    Value<?> base = r.read(code[pc + 1]);
+                    int index = code[pc + 2];
+                    if (base instanceof ArrayValue && r.isInt(index))
+                        AccessExpr.setItem(lines[pc], (ArrayValue) base, r.readInt(index),
+                            r.read(code[pc + 3]));
+                    else
+                        AccessExpr.set(lines[pc], base, r.read(index), r.read(code[pc + 3]));
+                    pc += 4;
+                    break;
+                }
+                case UNPACK: {
+                    Value<?> value = r.read(code[pc + 2]);
+                    if (!(value instanceof ArrayValue))
+                        Utils.abort(lines[pc]);
+
+                    ArrayValue list = (ArrayValue) value;
+                    int i = code[pc + 3];
+                    r.write(code[pc + 1], i < list.size() ? list.get(i) : null);
+                    pc += 4;
+                    break;
+                }
+                case JUMP:
+                    pc = code[pc + 1];
+                    break;
+                case JUMPF:
+                    pc = truth(r, code[pc + 1]) ? pc + 3 : code[pc + 2];
+                    break;
+                case JUMPT:
+                    pc = truth(r, code[pc + 1]) ? code[pc + 2] : pc + 3;
+                    break;
+                case JUMPNE: {
+                    int a = code[pc + 1];
+                    int b = code[pc + 2];
+                    boolean same = r.isInt(a) && r.isInt(b) ? r.readInt(a) == r.readInt(b) :
+                        Objects.equals(r.read(a), r.read(b));
+                    pc = same ? pc + 4 : code[pc + 3];
+                    break;
+                }
+                case JUMPFLT:
+                case JUMPFGT:
+                case JUMPFLE:
+                case JUMPFGE:
+                case JUMPFEQ:
+                case JUMPFNE: {
+                    int a = code[pc + 1];
+                    int b = code[pc + 2];
+                    boolean test;
+                    if (r.isInt(a) && r.isInt(b))
+                        test = compare(op.binaryOp(), r.readInt(a), r.readInt(b));
+                    else
+                        test = Utils.eval(BinaryExpr.apply(op.binaryOp(), lines[pc], r.read(a), r.read(b)));
+                    pc = test ? pc + 4 : code[pc + 3];
+                    break;
+                }
+                case CHECKLIST:
+                    if (!(r.read(code[pc + 1]) instanceof ArrayValue))
+                        Utils.abort(lines[pc]);
+                    pc += 2;
+                    break;
+                case ITER: {
+                    ArrayValue list = (ArrayValue) r.read(code[pc + 2]);
+                    int index = code[pc + 3];
+                    int i = r.readInt(index);
+                    if (i < list.size()) {
+                        if (list.isInt())
+                            r.writeInt(code[pc + 1], list.getInt(i));
+                        else
+                            r.write(code[pc + 1], list.get(i));
+
+                        r.writeInt(index, i + 1);
+                        pc += 5;
+                    } else {
+                        pc = code[pc + 4];
+                    }
+                    break;
+                }
+                case PRINT:
+                    Utils.print(r.read(code[pc + 1]), false);
+                    pc += 2;
+                    break;
+                case PRINTLN:
+                    Utils.print(r.read(code[pc + 1]), true);
+                    pc += 2;
+                    break;
+                case HALT:
+                    return;
+                default:
+                    throw new IllegalStateException("Unknown instruction " + op);
+            }
+        }
+    }
+
+    private static boolean truth(Registers r, int reg) {
+        return r.isInt(reg) ? r.readInt(reg) != 0 : Utils.eval(r.read(reg));
+    }
+
+    private static boolean compare(BinaryOp op, int a, int b) {
+        switch (op) {
+            case LOWER:
+                return a < b;
+            case GREATER:
+                return a > b;
+            case LOWER_EQUAL:
+                return a <= b;
+            case GREATER_EQUAL:
+                return a >= b;
+            case EQUALS:
+                return a == b;
+            default:
+                return a != b;
+        }
+    }
+
+}
@@ -2,12 +2,43 @@ package lexical;
 
 public class Lexeme {
 
-    public String token;
     public TokenType type;
+    public int line;
+
+    private Source source;
+    private int start;
+    private int end;
+    private String token;
+
+    public Lexeme() {
+        this.type = TokenType.END_OF_FILE;
+    }
 
     public Lexeme(String token, TokenType type) {
         this.token = token;
         this.type = type;
     }
 
+    void set(Source source, int start, int end, String token) {
+        this.source = source;
+        this.start = start;
+        this.end = end;
+        this.token = token;
+    }
+
+    public int start() {
+        return start;
+    }
+
+    public int end() {
+        return end;
+    }
+
+    public String token() {
+        if (token == null)
+            token = source == null ? "" : source.text(start, end);
+
+        return token;
+    }
+
 }
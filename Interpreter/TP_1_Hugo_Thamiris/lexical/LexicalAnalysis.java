@@ -1,235 +1,117 @@
 package lexical;
 
-import java.io.FileInputStream;
-import java.io.PushbackInputStream;
+import java.io.IOException;
+import java.io.Reader;
 
 public class LexicalAnalysis implements AutoCloseable {
 
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final Automaton automaton = new Automaton("_$", "//");
+
     private int line;
     private SymbolTable st;
-    private PushbackInputStream input;
+    private NameTable names;
+    private Source input;
+    private int position;
 
     public LexicalAnalysis(String filename) {
+        this(open(filename));
+    }
+
+    // A String is taken for a filename; text to be read as the program
+    // itself comes in as Source.fromText(text).
+    public LexicalAnalysis(Source input) {
+        this.input = input;
+        st = SymbolTable.instance();
+        names = new NameTable();
+        line = 1;
+        position = 0;
+    }
+
+    public LexicalAnalysis(Reader in) {
+        this(read(in));
+    }
+
+    private static Source open(String filename) {
         try {
-            input = new PushbackInputStream(new FileInputStream(filename), 2);
+            return Source.fromFile(filename);
         } catch (Exception e) {
             throw new LexicalException("Unable to open file");
         }
-
-        st = new SymbolTable();
-        line = 1;
     }
 
-    public void close() {
+    private static Source read(Reader in) {
         try {
-            input.close();
-        } catch (Exception e) {
-            throw new LexicalException("Unable to close file");
+            return Source.fromReader(in);
+        } catch (IOException e) {
+            throw new LexicalException("Unable to read source");
         }
     }
 
+    public void close() {
+        // The source is read entirely when the lexer is created,
+        // so there is nothing left open at this point.
+        input = null;
+    }
+
     public int getLine() {
         return this.line;
     }
 
     public Lexeme nextToken() {
-        Lexeme lex = new Lexeme("", TokenType.END_OF_FILE);
-
-        int state = 1;
-        while (state != 14 && state != 15) {
-            int c = getc();
-            // System.out.printf("  [%02d, %03d ('%c')]\n",
-            //     state, c, (char) c);
-
-            switch (state) {
-                case 1:
-                    if (c == ' ' || c == '\t' || c == '\r') {
-                        state = 1;
-                    } else if (c == '\n') {
-                        line++;
-                        state = 1;
-                    } else if (c == '-') {
-                        lex.token += (char) c;
-                        state = 6;
-                    } else if (c == '.' || c == ',' || c == ';' || c == ':' ||
-                                c == '(' || c == ')' || c == '[' || c == ']' ||
-                                c == '{' || c == '}') {
-                        lex.token += (char) c;
-                        state = 14;
-                    } else if (c == '!') {
-                        lex.token += (char) c;
-                        state = 7;
-                    } else if (c == '&') {
-                        lex.token += (char) c;
-                        state = 9;
-                    } else if (c == '_' || c == '$' || Character.isLetter(c)) {
-                        lex.token += (char) c;
-                        state = 11;
-                    } else if (Character.isDigit(c)) {
-                        lex.token += (char) c;
-                        state = 12;
-                    } else if (c == -1) {
-                        lex.type = TokenType.END_OF_FILE;
-                        state = 15;
-                    } else {
-                        lex.token += (char) c;
-                        lex.type = TokenType.INVALID_TOKEN;
-                        state = 15;
-                    }
-
-                    break;
-                case 2:
-                    if (c == '=') {
-                    	lex.token += (char) c;
-                        state = 14;
-                    }else if(c == '/'){
-                    	state = 3;
-                    }else {
-                    	ungetc(c);
-			            state = 14;
-                    }
-                    break;
-                case 3:
-                    if(c == '\n') {
-                    	line++;
-                    	state = 1;
-                    } else if (c == -1) {
-                    	lex.type = TokenType.END_OF_FILE;
-                    	state = 15;
-                    } else {
-                    	state = 3;
-                    }
-                    break;
-                case 4:
-                	if (c == '='){
-			            lex.token += (char) c;
-			            state = 14;
-                	} else if (c == '*'){
-			            lex.token += (char) c;
-			            state = 5;
-		            } else {
-			            ungetc(c);
-			            state = 14;
-		            }
-                    break;
-                case 5:
-                	if (c == '='){
-			            lex.token += (char) c;
-                        state = 14;
-		            } else {
-			            ungetc(c);
-			            state = 14;
-		            }
-                    break;
-                case 6:
-                    if (c == '=' || c == '>') {
-                        lex.token += (char) c;
-                        state = 14;
-                    } else {
-                        ungetc(c);
-                        state = 14;
-                    }
-
-                    break;
-                case 7:
-                    if (c == '=') {
-                        lex.token += (char) c;
-                        state = 14;
-                    } else if (c == 'i') {
-                        state = 8;
-                    } else {
-                        ungetc(c);
-                        state = 14;
-                    }
-
-                    break;
-                case 8:
-                    if (c == 'n') {
-                        lex.token += "in";
-                        state = 14;
-                    } else {
-                        ungetc(c);
-                        ungetc('i');
-                        state = 14;
-                    }
-
-                    break;
-                case 9:
-                    if (c == '&') {
-                        lex.token += (char) c;
-                        state = 14;
-                    } else {
-                        lex.type = TokenType.INVALID_TOKEN;
-                        state = 15;
-                    }
-
-                    break;
-                case 10:
-                    if (c == '|') {
-                    	lex.token += (char) c;
-                    	state = 14;
-                    } else {
-                        lex.type = TokenType.INVALID_TOKEN;
-                        state = 15;
-                    }
-                    break;
-                case 11:
-                    if (c == '$' || c == '_' ||
-                            Character.isLetter(c) || Character.isDigit(c)) {
-                        lex.token += (char) c;
-                        state = 11;
-                    } else {
-                        ungetc(c);
-                        state = 14;
-                    }
-
-                    break;
-                case 12:
-                    if (Character.isDigit(c)) {
-                        lex.token += (char) c;
-                        state = 12;
-                    } else {
-                        ungetc(c);
-                        lex.type = TokenType.NUMBER;
-                        state = 15;
-                    }
-
-                    break;
-                case 13:
-                	 if (c == '\'') {
- 			            lex.token += (char) c;
-                         state = 15;
- 		            } else {
- 			            lex.token += (char) c;
- 			            state = 13;
-                    }
-                    break;
-                default:
-                    throw new LexicalException("Unreachable");
-            }
-        }
-
-        if (state == 14)
-            lex.type = st.find(lex.token);
-
-        return lex;
+        return nextToken(new Lexeme());
     }
 
-    private int getc() {
-        try {
-            return input.read();
-        } catch (Exception e) {
-            throw new LexicalException("Unable to read file");
+    // Fills the given lexeme instead of allocating a new one. The token
+    // is kept as a range over the source and only becomes a String when
+    // someone asks for it.
+    public Lexeme nextToken(Lexeme lex) {
+        while (true) {
+            int start = position;
+            long match = automaton.scan(input, start);
+            int end = (int) (match >>> 32);
+            int accept = (int) match;
+            position = end;
+
+            if (accept == Automaton.NEWLINE) {
+                line++;
+            } else if (accept != Automaton.SKIP) {
+                lex.type = TYPES[accept];
+                lex.line = line;
+                switch (lex.type) {
+                    case NAME:
+                        lex.type = st.find(input, start, end);
+                        lex.set(input, start, end, lex.type == TokenType.NAME ?
+                            names.intern(input, start, end) : st.token(lex.type));
+                        break;
+                    case TEXT:
+                        countLines(start, end);
+                        lex.set(input, start + 1, end - 1, null);
+                        break;
+                    case UNEXPECTED_EOF:
+                        countLines(start, end);
+                        lex.set(input, start + 1, end, null);
+                        break;
+                    case NUMBER:
+                    case INVALID_TOKEN:
+                    case END_OF_FILE:
+                        lex.set(input, start, end, null);
+                        break;
+                    default:
+                        lex.set(input, start, end, st.token(lex.type));
+                        break;
+                }
+
+                return lex;
+            }
         }
     }
 
-    private void ungetc(int c) {
-        if (c != -1) {
-            try {
-                input.unread(c);
-            } catch (Exception e) {
-                throw new LexicalException("Unable to ungetc");
-            }
+    private void countLines(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (input.charAt(i) == '\n')
+                line++;
         }
     }
+
 }
@@ -0,0 +1,77 @@
+package lexical;
+
+// Interns token texts straight from the source buffer. A text that was
+// seen before is found by comparing characters in place, so repeated
+// names and keywords reuse the same String and allocate nothing.
+class NameTable {
+
+    private String[] names;
+    private int[] hashes;
+    private int size;
+
+    NameTable() {
+        names = new String[256];
+        hashes = new int[256];
+        size = 0;
+    }
+
+    String intern(Source src, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++)
+            hash = 31 * hash + src.charAt(i);
+
+        int mask = names.length - 1;
+        int index = mix(hash) & mask;
+        while (names[index] != null) {
+            if (hashes[index] == hash && matches(names[index], src, start, end))
+                return names[index];
+
+            index = (index + 1) & mask;
+        }
+
+        String name = src.text(start, end);
+        names[index] = name;
+        hashes[index] = hash;
+        if (++size * 2 > names.length)
+            grow();
+
+        return name;
+    }
+
+    private static boolean matches(String name, Source src, int start, int end) {
+        if (name.length() != end - start)
+            return false;
+
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != src.charAt(start + i))
+                return false;
+        }
+
+        return true;
+    }
+
+    private void grow() {
+        String[] oldNames = names;
+        int[] oldHashes = hashes;
+
+        names = new String[oldNames.length * 2];
+        hashes = new int[oldNames.length * 2];
+
+        int mask = names.length - 1;
+        for (int i = 0; i < oldNames.length; i++) {
+            if (oldNames[i] != null) {
+                int index = mix(oldHashes[i]) & mask;
+                while (names[index] != null)
+                    index = (index + 1) & mask;
+
+                names[index] = oldNames[i];
+                hashes[index] = oldHashes[i];
+            }
+        }
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+}
@@ -0,0 +1,118 @@
+package lexical;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class Source implements CharSequence {
+
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private CharBuffer buffer;
+
+    private Source(CharBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    // Maps the whole file and decodes it in a single pass. Each byte
+    // becomes one char (ISO-8859-1), exactly as the old byte-by-byte
+    // reader did, so the tokens produced do not change.
+    public static Source fromFile(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename),
+                StandardOpenOption.READ)) {
+            ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY,
+                0, channel.size());
+            return new Source(StandardCharsets.ISO_8859_1.decode(bytes));
+        }
+    }
+
+    // Streams have no size to map, so they are drained into a large
+    // direct buffer that doubles whenever it fills up.
+    public static Source fromStream(InputStream in) throws IOException {
+        ReadableByteChannel channel = Channels.newChannel(in);
+        ByteBuffer bytes = ByteBuffer.allocateDirect(CHUNK_SIZE);
+        while (channel.read(bytes) != -1) {
+            if (!bytes.hasRemaining()) {
+                ByteBuffer larger = ByteBuffer.allocateDirect(bytes.capacity() * 2);
+                bytes.flip();
+                larger.put(bytes);
+                bytes = larger;
+            }
+        }
+
+        bytes.flip();
+        return new Source(StandardCharsets.ISO_8859_1.decode(bytes));
+    }
+
+    // Text already in memory, such as a script handed to MgEngine. It is
+    // copied to an array so that tokens are cut out of it directly.
+    public static Source fromText(CharSequence text) {
+        return new Source(CharBuffer.wrap(text.toString().toCharArray()));
+    }
+
+    // The chars of a reader, drained into an array that doubles whenever
+    // it fills up.
+    public static Source fromReader(Reader in) throws IOException {
+        char[] chars = new char[CHUNK_SIZE];
+        int length = 0;
+        int read;
+        while ((read = in.read(chars, length, chars.length - length)) != -1) {
+            length += read;
+            if (length == chars.length)
+                chars = Arrays.copyOf(chars, chars.length * 2);
+        }
+
+        return new Source(CharBuffer.wrap(chars, 0, length));
+    }
+
+    public int getc() {
+        return buffer.hasRemaining() ? buffer.get() : -1;
+    }
+
+    public void ungetc(int c) {
+        if (c != -1)
+            buffer.position(buffer.position() - 1);
+    }
+
+    public int position() {
+        return buffer.position();
+    }
+
+    public int length() {
+        return buffer.limit();
+    }
+
+    public char charAt(int index) {
+        return buffer.get(index);
+    }
+
+    public CharSequence subSequence(int start, int end) {
+        return text(start, end);
+    }
+
+    public String text(int start, int end) {
+        if (buffer.hasArray())
+            return new String(buffer.array(), buffer.arrayOffset() + start, end - start);
+
+        char[] chars = new char[end - start];
+        for (int i = start; i < end; i++)
+            chars[i - start] = buffer.get(i);
+
+        return new String(chars);
+    }
+
+    @Override
+    public String toString() {
+        return text(0, length());
+    }
+
+}
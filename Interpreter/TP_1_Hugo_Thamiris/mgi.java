@@ -1,21 +1,178 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
 import interpreter.command.Command;
+import interpreter.jit.Jit;
+import interpreter.opt.Optimizer;
+import interpreter.util.Diagnostic;
+import interpreter.util.InterpreterException;
+import interpreter.util.Memory;
+import interpreter.util.Output;
+import interpreter.vm.Compiler;
+import interpreter.vm.Program;
+import interpreter.vm.ProgramCache;
+import interpreter.vm.VM;
+import lexical.Lexeme;
 import lexical.LexicalAnalysis;
+import lexical.Source;
+import lexical.TokenType;
+import syntatic.BinaryTrace;
 import syntatic.SyntaticAnalysis;
+import syntatic.TextTrace;
 
 public class mgi {
 
     public static void main(String[] args) {
-        if (args.length != 1) {
-            System.out.println("Usage: java mgi [miniGroovy file]");
+        if (args.length > 0 && args[0].equals("--check")) {
+            if (args.length == 1) {
+                usage();
+                return;
+            }
+
+            System.exit(check(Arrays.copyOfRange(args, 1, args.length)) ? 0 : 1);
+        }
+
+        String filename = null;
+        String mode = null;
+        String traceFile = null;
+        String output = null;
+        String cache = null;
+        boolean trace = false;
+        boolean vm = false;
+        boolean optimize = true;
+        boolean report = false;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--lex":
+                case "--replay":
+                    mode = args[i];
+                    break;
+                case "--trace":
+                    trace = true;
+                    break;
+                case "--vm":
+                    vm = true;
+                    break;
+                case "--no-opt":
+                    optimize = false;
+                    break;
+                case "--opt-report":
+                    report = true;
+                    break;
+                case "--no-jit":
+                    Jit.setThreshold(0);
+                    break;
+                case "--jit-threshold":
+                    try {
+                        Jit.setThreshold(Integer.parseInt(args[++i]));
+                    } catch (RuntimeException e) {
+                        usage();
+                        return;
+                    }
+                    break;
+                case "--trace-file":
+                    traceFile = ++i < args.length ? args[i] : null;
+                    if (traceFile == null) {
+                        usage();
+                        return;
+                    }
+                    break;
+                case "--cache":
+                    cache = ++i < args.length ? args[i] : null;
+                    if (cache == null) {
+                        usage();
+                        return;
+                    }
+                    break;
+                case "--output":
+                    output = ++i < args.length ? args[i] : null;
+                    if (output == null) {
+                        usage();
+                        return;
+                    }
+                    break;
+                default:
+                    if (args[i].startsWith("--") || filename != null) {
+                        usage();
+                        return;
+                    }
+
+                    filename = args[i];
+                    break;
+            }
+        }
+
+        if (filename == null) {
+            usage();
+            return;
+        }
+
+        if ("--lex".equals(mode)) {
+            benchmarkLexer(filename);
+            return;
+        }
+
+        if ("--replay".equals(mode)) {
+            replay(filename);
+            return;
+        }
+
+        if (cache != null) {
+            runCached(filename, cache, optimize, output);
             return;
         }
 
-        try (LexicalAnalysis l = new LexicalAnalysis(args[0])) {
+        try (LexicalAnalysis l = new LexicalAnalysis(filename)) {
             // O código a seguir é dado para testar o interpretador.
             // TODO: descomentar depois que o analisador léxico estiver OK.
             SyntaticAnalysis s = new SyntaticAnalysis(l);
+            BinaryTrace binary = null;
+            if (trace) {
+                s.setListener(new TextTrace(System.out));
+            } else if (traceFile != null) {
+                binary = new BinaryTrace(new BufferedOutputStream(
+                    new FileOutputStream(traceFile)));
+                s.setListener(binary);
+            }
+
             Command c = s.start();
-            c.execute();
+            if (binary != null)
+                binary.close();
+
+            // Every error of the file is shown, and none of it runs.
+            if (s.diagnostics().hasErrors()) {
+                s.diagnostics().print(System.out);
+                System.exit(1);
+            }
+
+            if (optimize) {
+                Optimizer o = new Optimizer();
+                c = o.optimize(c);
+                if (report)
+                    System.err.printf("%s: %d of %d nodes eliminated\n",
+                        filename, o.eliminated(), o.nodes());
+            }
+
+            if (output != null)
+                Output.redirect(output);
+
+            try {
+                if (vm) {
+                    Program p = new Compiler(s.frameSize()).compile(c);
+                    new VM().run(p);
+                } else {
+                    c.execute(new Memory(s.frameSize()));
+                }
+            } finally {
+                Output.flush();
+            }
 
             /*
             // O código a seguir é usado apenas para testar o analisador léxico.
@@ -24,14 +181,133 @@ public class mgi {
             do {
                 lex = l.nextToken();
                 System.out.printf("%02d: (\"%s\", %s)\n", l.getLine(),
-                    lex.token, lex.type);
+                    lex.token(), lex.type);
             } while (lex.type != TokenType.END_OF_FILE &&
                      lex.type != TokenType.INVALID_TOKEN &&
                      lex.type != TokenType.UNEXPECTED_EOF);
             */
+        } catch (InterpreterException e) {
+            // Output has been flushed, so the error comes after it.
+            System.out.printf("%s\n", e.getDiagnostic());
+            System.exit(1);
         } catch (Exception e) {
             System.err.println("Internal error: " + e.getMessage());
         }
     }
 
+    private static void usage() {
+        System.out.println("Usage: java mgi [--lex | --trace | --trace-file [trace]] [--vm | --cache [directory]] [--output [file]]");
+        System.out.println("               [--no-opt | --opt-report] [--no-jit | --jit-threshold [back edges]]");
+        System.out.println("               [miniGroovy file]");
+        System.out.println("       java mgi --replay [trace]");
+        System.out.println("       java mgi --check [miniGroovy files...]");
+    }
+
+    // Runs the file on the VM, compiled once and then kept in the cache
+    // directory under the hash of its text; while the text stays the
+    // same, later runs load the compiled program and neither lex nor
+    // parse it.
+    private static void runCached(String filename, String directory, boolean optimize,
+            String output) {
+        try {
+            ProgramCache cache = new ProgramCache(Paths.get(directory));
+            Source source = Source.fromFile(filename);
+            String key = ProgramCache.key(source, optimize);
+
+            Program p = cache.get(key);
+            if (p == null) {
+                try (LexicalAnalysis l = new LexicalAnalysis(source)) {
+                    SyntaticAnalysis s = new SyntaticAnalysis(l);
+                    Command c = s.start();
+                    if (s.diagnostics().hasErrors()) {
+                        s.diagnostics().print(System.out);
+                        System.exit(1);
+                    }
+
+                    if (optimize)
+                        c = new Optimizer().optimize(c);
+
+                    p = new Compiler(s.frameSize()).compile(c);
+                }
+
+                cache.put(key, p);
+            }
+
+            if (output != null)
+                Output.redirect(output);
+
+            try {
+                new VM().run(p);
+            } finally {
+                Output.flush();
+            }
+        } catch (InterpreterException e) {
+            System.out.printf("%s\n", e.getDiagnostic());
+            System.exit(1);
+        } catch (Exception e) {
+            System.err.println("Internal error: " + e.getMessage());
+        }
+    }
+
+    // Parses each file without running it and shows its errors, all in
+    // one JVM. Whether every file was free of them.
+    private static boolean check(String[] filenames) {
+        boolean ok = true;
+        for (String filename : filenames) {
+            try (LexicalAnalysis l = new LexicalAnalysis(filename)) {
+                SyntaticAnalysis s = new SyntaticAnalysis(l);
+                s.start();
+
+                for (Diagnostic error : s.diagnostics().getErrors()) {
+                    System.out.printf("%s:%s\n", filename, error);
+                    ok = false;
+                }
+            } catch (Exception e) {
+                System.err.println(filename + ": Internal error: " + e.getMessage());
+                ok = false;
+            }
+        }
+
+        return ok;
+    }
+
+    // Prints a binary trace written by --trace-file as text.
+    private static void replay(String filename) {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(filename))) {
+            BinaryTrace.replay(in, new TextTrace(System.out));
+        } catch (Exception e) {
+            System.err.println("Internal error: " + e.getMessage());
+        }
+    }
+
+    // Runs only the lexer over the file a few times and reports the
+    // throughput and allocation of the last (warm) round.
+    private static void benchmarkLexer(String filename) {
+        com.sun.management.ThreadMXBean bean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        for (int round = 1; round <= 5; round++) {
+            try (LexicalAnalysis l = new LexicalAnalysis(filename)) {
+                Lexeme lex = new Lexeme();
+                long tokens = 0;
+
+                long bytes = bean.getThreadAllocatedBytes(thread);
+                long time = System.nanoTime();
+                do {
+                    l.nextToken(lex);
+                    tokens++;
+                } while (lex.type != TokenType.END_OF_FILE);
+                time = System.nanoTime() - time;
+                bytes = bean.getThreadAllocatedBytes(thread) - bytes;
+
+                System.out.printf("round %d: %d tokens, %.0f tokens/s, %.2f bytes/token\n",
+                    round, tokens, tokens / (time / 1e9), (double) bytes / tokens);
+            } catch (Exception e) {
+                System.err.println("Internal error: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
 }
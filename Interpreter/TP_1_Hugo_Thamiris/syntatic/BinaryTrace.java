@@ -0,0 +1,90 @@
+package syntatic;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import lexical.Lexeme;
+import lexical.TokenType;
+
+// Writes parser events as compact binary records that can be replayed
+// offline. Each record is one event byte followed by the token type
+// ordinals. The token text is written only when the type has no fixed
+// text (names, numbers, texts and invalid tokens).
+public class BinaryTrace implements ParseListener, AutoCloseable {
+
+    private static final int ADVANCED = 0;
+    private static final int EXPECTED = 1;
+
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private DataOutputStream out;
+
+    public BinaryTrace(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    public void advanced(Lexeme lex) {
+        write(ADVANCED, null, lex);
+    }
+
+    public void expected(TokenType type, Lexeme found) {
+        write(EXPECTED, type, found);
+    }
+
+    public void close() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to close trace", e);
+        }
+    }
+
+    // Reads the records back and hands them to another listener, usually
+    // a TextTrace.
+    public static void replay(InputStream in, ParseListener listener) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        while (true) {
+            int event;
+            try {
+                event = data.readUnsignedByte();
+            } catch (EOFException e) {
+                return;
+            }
+
+            TokenType expected = event == EXPECTED ? TYPES[data.readUnsignedByte()] : null;
+            TokenType type = TYPES[data.readUnsignedByte()];
+            String token = type.text() != null ? type.text() : data.readUTF();
+            Lexeme lex = new Lexeme(token, type);
+
+            switch (event) {
+                case ADVANCED:
+                    listener.advanced(lex);
+                    break;
+                case EXPECTED:
+                    listener.expected(expected, lex);
+                    break;
+                default:
+                    throw new IOException("Invalid trace record");
+            }
+        }
+    }
+
+    private void write(int event, TokenType expected, Lexeme lex) {
+        try {
+            out.writeByte(event);
+            if (expected != null)
+                out.writeByte(expected.ordinal());
+
+            out.writeByte(lex.type.ordinal());
+            if (lex.type.text() == null)
+                out.writeUTF(lex.token());
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to write trace", e);
+        }
+    }
+
+}
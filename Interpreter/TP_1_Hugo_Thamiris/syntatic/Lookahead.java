@@ -0,0 +1,51 @@
+package syntatic;
+
+import lexical.Lexeme;
+import lexical.LexicalAnalysis;
+
+// A fixed ring of lexemes over the lexer. peek(0) is the current token
+// and peek(k) looks k tokens ahead. The lexemes are refilled in place,
+// so a lexeme must not be kept once the parser has moved past it.
+class Lookahead {
+
+    private LexicalAnalysis lex;
+    private Lexeme[] ring;
+    private int mask;
+    private int head;
+    private int count;
+
+    Lookahead(LexicalAnalysis lex, int k) {
+        int size = 1;
+        while (size <= k)
+            size <<= 1;
+
+        this.lex = lex;
+        this.ring = new Lexeme[size];
+        for (int i = 0; i < size; i++)
+            ring[i] = new Lexeme();
+
+        this.mask = size - 1;
+        this.head = 0;
+        this.count = 0;
+    }
+
+    Lexeme peek(int k) {
+        assert k < ring.length;
+
+        while (count <= k) {
+            lex.nextToken(ring[(head + count) & mask]);
+            count++;
+        }
+
+        return ring[(head + k) & mask];
+    }
+
+    // Drops the current token and returns the one after it.
+    Lexeme next() {
+        peek(0);
+        head = (head + 1) & mask;
+        count--;
+        return peek(0);
+    }
+
+}
@@ -0,0 +1,15 @@
+package syntatic;
+
+import lexical.Lexeme;
+import lexical.TokenType;
+
+// Receives the parser's token events. The parser keeps no listener by
+// default and only calls one after a null check, so tracing costs
+// nothing unless it is turned on.
+public interface ParseListener {
+
+    void advanced(Lexeme lex);
+
+    void expected(TokenType type, Lexeme found);
+
+}
@@ -0,0 +1,122 @@
+package syntatic;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import interpreter.expr.Variable;
+import interpreter.util.Diagnostics;
+import interpreter.util.Utils;
+
+// Gives each def a slot in the frame as the program is parsed. Scopes
+// nest like the braces of the program; when one ends its slots are
+// given back, so the frame only needs as many slots as the deepest
+// chain of live declarations.
+class Resolver {
+
+    private List<Map<String, Integer>> scopes;
+    private List<Integer> marks;
+    private int next;
+    private int size;
+    private Diagnostics diagnostics;
+
+    // The uses of each name that was never declared, when such names are
+    // allowed; null otherwise.
+    private Map<String, List<Variable>> free;
+
+    Resolver(Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+        this.scopes = new ArrayList<Map<String, Integer>>();
+        this.marks = new ArrayList<Integer>();
+        this.next = 0;
+        this.size = 0;
+        begin();
+    }
+
+    // Number of slots the frame needs.
+    int size() {
+        return size;
+    }
+
+    // From now on a name used without a def is not an error but a free
+    // variable, whose value whoever runs the program supplies.
+    void allowFree() {
+        if (free == null)
+            free = new LinkedHashMap<String, List<Variable>>();
+    }
+
+    // Gives each free variable a slot after all the others, now that the
+    // program has been seen whole, and returns the first use of each.
+    Map<String, Variable> finish() {
+        Map<String, Variable> first = new LinkedHashMap<String, Variable>();
+        if (free == null)
+            return first;
+
+        for (Map.Entry<String, List<Variable>> uses : free.entrySet()) {
+            int slot = size++;
+            for (Variable use : uses.getValue())
+                use.setSlot(slot);
+
+            first.put(uses.getKey(), uses.getValue().get(0));
+        }
+
+        free.clear();
+        return first;
+    }
+
+    void begin() {
+        scopes.add(new HashMap<String, Integer>());
+        marks.add(next);
+    }
+
+    void end() {
+        scopes.remove(scopes.size() - 1);
+        next = marks.remove(marks.size() - 1);
+    }
+
+    // How many scopes are open, so that a statement given up on halfway
+    // can close the ones it opened with unwind.
+    int depth() {
+        return scopes.size();
+    }
+
+    void unwind(int depth) {
+        while (scopes.size() > depth)
+            end();
+    }
+
+    // A name declared again in the same scope gets a fresh slot; the code
+    // that follows sees only the new variable.
+    Variable declare(int line, String name) {
+        int slot = next++;
+        if (next > size)
+            size = next;
+
+        scopes.get(scopes.size() - 1).put(name, slot);
+        return new Variable(line, name, slot);
+    }
+
+    // Using a name that was never declared is an error, reported before
+    // the program starts running.
+    Variable lookup(int line, String name) {
+        for (int i = scopes.size() - 1; i >= 0; i--) {
+            Integer slot = scopes.get(i).get(name);
+            if (slot != null)
+                return new Variable(line, name, slot);
+        }
+
+        if (free != null) {
+            Variable use = new Variable(line, name, -1);
+            free.computeIfAbsent(name, k -> new ArrayList<Variable>()).add(use);
+            return use;
+        }
+
+        // Reported once; the name is then taken as declared here, so
+        // parsing goes on.
+        diagnostics.report(line, Utils.INVALID_OPERATION);
+        return declare(line, name);
+    }
+
+}
@@ -1,480 +1,898 @@
 package syntatic;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import interpreter.command.AssignCommand;
+import interpreter.command.BlocksCommand;
 import interpreter.command.Command;
+import interpreter.command.DeclareCommand;
+import interpreter.command.DeclareListCommand;
+import interpreter.command.ForCommand;
+import interpreter.command.ForeachCommand;
+import interpreter.command.IfCommand;
+import interpreter.command.PrintCommand;
+import interpreter.command.WhileCommand;
+import interpreter.expr.AccessExpr;
+import interpreter.expr.BinaryExpr;
+import interpreter.expr.BinaryOp;
+import interpreter.expr.CastExpr;
+import interpreter.expr.CastOp;
+import interpreter.expr.ConstExpr;
+import interpreter.expr.Expr;
+import interpreter.expr.FunctionExpr;
+import interpreter.expr.FunctionOp;
+import interpreter.expr.IntBinaryExpr;
+import interpreter.expr.ListExpr;
+import interpreter.expr.MapExpr;
+import interpreter.expr.SetExpr;
+import interpreter.expr.SwitchExpr;
+import interpreter.expr.UnaryExpr;
+import interpreter.expr.UnaryOp;
+import interpreter.expr.Variable;
+import interpreter.util.Diagnostics;
+import interpreter.value.BooleanValue;
+import interpreter.value.NumberValue;
+import interpreter.value.TextValue;
+import interpreter.value.Value;
 import lexical.Lexeme;
 import lexical.LexicalAnalysis;
 import lexical.TokenType;
 
-import java.util.Stack;
-
 public class SyntaticAnalysis {
 
-    private LexicalAnalysis lex;
+    // Binding powers of the binary operators and as; 0 for every other
+    // token, which ends an expression.
+    private static final int LOGIC = 1;
+    private static final int REL = 2;
+    private static final int CAST = 3;
+    private static final int SUM = 4;
+    private static final int PRODUCT = 5;
+    private static final int POWER = 6;
+
+    private static final int[] LEVEL = new int[TokenType.values().length];
+    private static final BinaryOp[] OPS = new BinaryOp[TokenType.values().length];
+
+    static {
+        operator(TokenType.AND, LOGIC, BinaryOp.AND);
+        operator(TokenType.OR, LOGIC, BinaryOp.OR);
+        operator(TokenType.LOWER, REL, BinaryOp.LOWER);
+        operator(TokenType.GREATER, REL, BinaryOp.GREATER);
+        operator(TokenType.LOWER_EQUAL, REL, BinaryOp.LOWER_EQUAL);
+        operator(TokenType.GREATER_EQUAL, REL, BinaryOp.GREATER_EQUAL);
+        operator(TokenType.EQUALS, REL, BinaryOp.EQUALS);
+        operator(TokenType.NOT_EQUALS, REL, BinaryOp.NOT_EQUALS);
+        operator(TokenType.CONTAINS, REL, BinaryOp.CONTAINS);
+        operator(TokenType.NOT_CONTAINS, REL, BinaryOp.NOT_CONTAINS);
+        operator(TokenType.AS, CAST, null);
+        operator(TokenType.ADD, SUM, BinaryOp.ADD);
+        operator(TokenType.SUB, SUM, BinaryOp.SUB);
+        operator(TokenType.MUL, PRODUCT, BinaryOp.MUL);
+        operator(TokenType.DIV, PRODUCT, BinaryOp.DIV);
+        operator(TokenType.MOD, PRODUCT, BinaryOp.MOD);
+        operator(TokenType.POWER, POWER, BinaryOp.POWER);
+    }
+
+    // FIRST(<expr>), FIRST(<cmd>) and FOLLOW(<code>), from the grammar
+    // comments: the tokens an expression or a command can start with, and
+    // those that can close a list of commands. SYNC holds the keywords
+    // that can only start a command, where recovery from an error stops.
+    private static final EnumSet<TokenType> FIRST_EXPR = EnumSet.of(
+        TokenType.NOT, TokenType.SUB, TokenType.OPEN_PAR, TokenType.NULL,
+        TokenType.FALSE, TokenType.TRUE, TokenType.NUMBER, TokenType.TEXT,
+        TokenType.READ, TokenType.EMPTY, TokenType.SIZE, TokenType.KEYS,
+        TokenType.VALUES, TokenType.SWITCH, TokenType.OPEN_BRA, TokenType.NAME);
+    private static final EnumSet<TokenType> SYNC = EnumSet.of(
+        TokenType.DEF, TokenType.PRINT, TokenType.PRINTLN, TokenType.IF,
+        TokenType.WHILE, TokenType.FOR, TokenType.FOREACH);
+    private static final EnumSet<TokenType> FIRST_CMD = EnumSet.copyOf(SYNC);
+    private static final EnumSet<TokenType> FOLLOW_CODE = EnumSet.of(
+        TokenType.CLOSE_CUR, TokenType.END_OF_FILE);
+
+    static {
+        FIRST_CMD.addAll(FIRST_EXPR);
+    }
+
+    private static void operator(TokenType type, int level, BinaryOp op) {
+        LEVEL[type.ordinal()] = level;
+        OPS[type.ordinal()] = op;
+    }
+
+    // Thrown by showError once the error is reported, to give up on the
+    // statement being parsed; procCode catches it and skips ahead.
+    private static class ParseError extends RuntimeException {
+
+        private static final ParseError INSTANCE = new ParseError();
+
+        private ParseError() {
+            super(null, null, false, false);
+        }
+
+    }
+
+    private Lookahead tokens;
     private Lexeme current;
-    private Stack<Lexeme> history;
-    private Stack<Lexeme> queued;
+    private int position;
+    private boolean atEnd;
+    private ParseListener listener;
+    private Resolver resolver;
+    private Diagnostics diagnostics;
+    private Map<String, Variable> free;
 
     public SyntaticAnalysis(LexicalAnalysis lex) {
-        this.lex = lex;
-        this.current = lex.nextToken();
-        this.history = new Stack<Lexeme>();
-        this.queued = new Stack<Lexeme>();
+        this(lex, new Diagnostics());
     }
 
-    public Command start() {
-        procCode();
-        eat(TokenType.END_OF_FILE);
-        return null;
+    public SyntaticAnalysis(LexicalAnalysis lex, Diagnostics diagnostics) {
+        this.tokens = new Lookahead(lex, 1);
+        this.current = tokens.peek(0);
+        this.resolver = new Resolver(diagnostics);
+        this.diagnostics = diagnostics;
     }
 
-    private void rollback() {
-        assert !history.isEmpty();
+    // Tracing is off unless a listener is set.
+    public void setListener(ParseListener listener) {
+        this.listener = listener;
+    }
 
-        System.out.println("Rollback (\"" + current.token + "\", " +
-            current.type + ")");
-        queued.push(current);
-        current = history.pop();
+    // Names used without a def become free variables instead of errors;
+    // see freeVariables().
+    public void allowFreeVariables() {
+        resolver.allowFree();
+    }
+
+    // The free variables of the program parsed by start(), each with its
+    // first use, which holds its slot.
+    public Map<String, Variable> freeVariables() {
+        return free;
+    }
+
+    // Number of variable slots the program parsed by start() needs.
+    public int frameSize() {
+        return resolver.size();
+    }
+
+    // The errors found by start(), if any.
+    public Diagnostics diagnostics() {
+        return diagnostics;
+    }
+
+    // Parses the whole file. Errors do not stop it: each is reported to
+    // the diagnostics, the statement it is in is dropped and parsing goes
+    // on from the next one, so what comes back is the program without its
+    // broken statements. It must not be run unless there were no errors.
+    public Command start() {
+        BlocksCommand cmds = procCode(TokenType.END_OF_FILE);
+        free = resolver.finish();
+        return cmds;
     }
 
     private void advance() {
-        System.out.println("Advanced (\"" + current.token + "\", " +
-            current.type + ")");
-        history.add(current);
-        current = queued.isEmpty() ? lex.nextToken() : queued.pop();
+        if (listener != null)
+            listener.advanced(current);
+
+        current = tokens.next();
+        position++;
     }
 
     private void eat(TokenType type) {
-        System.out.println("Expected (..., " + type + "), found (\"" + 
-            current.token + "\", " + current.type + ")");
+        if (listener != null)
+            listener.expected(type, current);
+
         if (type == current.type) {
-            history.add(current);
-            current = queued.isEmpty() ? lex.nextToken() : queued.pop();
+            current = tokens.next();
+            position++;
         } else {
             showError();
         }
     }
 
     private void showError() {
-        System.out.printf("%02d: ", lex.getLine());
-
+        String message;
         switch (current.type) {
             case INVALID_TOKEN:
-                System.out.printf("Lexema inválido [%s]\n", current.token);
+                message = "Lexema inválido [" + current.token() + "]";
                 break;
             case UNEXPECTED_EOF:
             case END_OF_FILE:
-                System.out.printf("Fim de arquivo inesperado\n");
+                message = "Fim de arquivo inesperado";
                 break;
             default:
-                System.out.printf("Lexema não esperado [%s]\n", current.token);
+                message = "Lexema não esperado [" + current.token() + "]";
                 break;
         }
 
-        System.exit(1);
+        // Once the file has ended, every open construct would report it
+        // again; the first time is enough.
+        if (current.type != TokenType.END_OF_FILE || !atEnd) {
+            diagnostics.report(current.line, message);
+            atEnd = current.type == TokenType.END_OF_FILE ||
+                current.type == TokenType.UNEXPECTED_EOF;
+        }
+
+        throw ParseError.INSTANCE;
     }
 
     // <code> ::= { <cmd> }
-    private void procCode() {
-        while (current.type == TokenType.DEF ||
-            current.type == TokenType.PRINT ||
-            current.type == TokenType.PRINTLN ||
-            current.type == TokenType.IF ||
-            current.type == TokenType.WHILE ||
-            current.type == TokenType.FOR ||
-            current.type == TokenType.FOREACH ||
-            current.type == TokenType.NOT ||
-            current.type == TokenType.SUB ||
-            current.type == TokenType.OPEN_PAR ||
-            current.type == TokenType.NULL ||
-            current.type == TokenType.FALSE ||
-            current.type == TokenType.TRUE ||
-            current.type == TokenType.NUMBER ||
-            current.type == TokenType.TEXT ||
-            current.type == TokenType.READ ||
-            current.type == TokenType.EMPTY ||
-            current.type == TokenType.SIZE ||
-            current.type == TokenType.KEYS ||
-            current.type == TokenType.VALUES ||
-            current.type == TokenType.SWITCH ||
-            current.type == TokenType.OPEN_BRA ||
-            current.type == TokenType.NAME) {
-            procCmd();
+    // Runs up to the token that closes it: '}' in a body, the end of the
+    // file at the top. A statement with an error is left out.
+    private BlocksCommand procCode(TokenType end) {
+        BlocksCommand cmds = new BlocksCommand(current.line);
+        while (current.type != end && current.type != TokenType.END_OF_FILE) {
+            int start = position;
+            int scopes = resolver.depth();
+            try {
+                if (!FIRST_CMD.contains(current.type))
+                    showError();
+
+                Command cmd = procCmd();
+                cmds.addCommand(cmd);
+            } catch (ParseError e) {
+                resolver.unwind(scopes);
+                recover(start);
+            }
         }
+
+        return cmds;
     }
 
-    // <cmd> ::= <decl> | <print> | <if> | <while> | <for> | <foreach> | <assign>
-    private void procCmd() {
+    // Panic mode: skips to where a statement can start again, that is
+    // past a ';' or at a statement keyword, a '}' or the end of the file.
+    // A bracketed group is skipped whole, so a '{' body of a broken if or
+    // while goes with it. At least one token is skipped when the broken
+    // statement took none, so parsing always moves on.
+    private void recover(int start) {
+        if (position == start)
+            advance();
+
+        int depth = 0;
+        while (current.type != TokenType.END_OF_FILE) {
+            TokenType type = current.type;
+            if (depth == 0) {
+                if (FOLLOW_CODE.contains(type) || SYNC.contains(type))
+                    return;
+
+                if (type == TokenType.SEMI_COLON) {
+                    advance();
+                    return;
+                }
+            }
+
+            if (type == TokenType.OPEN_PAR || type == TokenType.OPEN_CUR ||
+                    type == TokenType.OPEN_BRA) {
+                depth++;
+            } else if (depth > 0 && (type == TokenType.CLOSE_PAR ||
+                    type == TokenType.CLOSE_CUR || type == TokenType.CLOSE_BRA)) {
+                depth--;
+                if (depth == 0 && type == TokenType.CLOSE_CUR) {
+                    advance();
+                    return;
+                }
+            }
+
+            advance();
+        }
+    }
+
+    // <cmd> ::= ( <decl> | <print> | <if> | <while> | <for> | <foreach> | <assign> ) [ ';' ]
+    private Command procCmd() {
+        Command cmd = null;
         switch (current.type) {
             case DEF:
-                procDecl();
+                cmd = procDecl();
                 break;
             case PRINT:
             case PRINTLN:
-                procPrint();
+                cmd = procPrint();
                 break;
             case IF:
-                procIf();
+                cmd = procIf();
                 break;
             case WHILE:
-                procWhile();
+                cmd = procWhile();
                 break;
             case FOR:
-                procFor();
+                cmd = procFor();
                 break;
             case FOREACH:
-                procForeach();
-                break;
-            case NOT:
-            case SUB:
-            case OPEN_PAR:
-            case NULL:
-            case FALSE:
-            case TRUE:
-            case NUMBER:
-            case TEXT:
-            case READ:
-            case EMPTY:
-            case SIZE:
-            case KEYS:
-            case VALUES:
-            case SWITCH:
-            case OPEN_BRA:
-            case NAME:
-                procAssign();
+                cmd = procForeach();
                 break;
             default:
-                showError();
+                if (FIRST_EXPR.contains(current.type))
+                    cmd = procAssign();
+                else
+                    showError();
         }
+
+        if (current.type == TokenType.SEMI_COLON)
+            advance();
+
+        return cmd;
     }
 
     // <decl> ::= def ( <decl-type1> | <decl-type2> )
-    private void procDecl() {
+    private Command procDecl() {
+        int line = current.line;
         eat(TokenType.DEF);
+
+        Command cmd;
         if (current.type == TokenType.NAME) {
-            procDeclType1();
+            cmd = procDeclType1(line);
         } else {
-            procDeclType2();
+            cmd = procDeclType2(line);
         }
+
+        return cmd;
     }
 
     // <decl-type1> ::= <name> [ '=' <expr> ] { ',' <name> [ '=' <expr> ] }
-    private void procDeclType1() {
-        procName();
+    private Command procDeclType1(int line) {
+        int nameLine = current.line;
+        String name = procName();
 
+        Expr expr = null;
         if (current.type == TokenType.ASSIGN) {
             advance();
-            procExpr();
+            expr = procExpr();
         }
 
+        // The variable only exists after its initializer.
+        Variable var = resolver.declare(nameLine, name);
+        Command cmd = new DeclareCommand(line, var, expr);
+        if (current.type != TokenType.COMMA)
+            return cmd;
+
+        BlocksCommand cmds = new BlocksCommand(line);
+        cmds.addCommand(cmd);
         while (current.type == TokenType.COMMA) {
             advance();
 
-            procName();
+            nameLine = current.line;
+            name = procName();
 
+            expr = null;
             if (current.type == TokenType.ASSIGN) {
                 advance();
-                procExpr();
+                expr = procExpr();
             }
+
+            var = resolver.declare(nameLine, name);
+            cmds.addCommand(new DeclareCommand(line, var, expr));
         }
+
+        return cmds;
     }
 
     // <decl-type2> ::= '(' <name> { ',' <name> } ')' = <expr>
-    private void procDeclType2() {
-    	eat(TokenType.OPEN_PAR);
-        procName();
+    private Command procDeclType2(int line) {
+        List<String> names = new ArrayList<String>();
+
+        eat(TokenType.OPEN_PAR);
+        names.add(procName());
 
         while (current.type == TokenType.COMMA){
             advance();
-            procName();
+            names.add(procName());
         }
         eat(TokenType.CLOSE_PAR);
         eat(TokenType.ASSIGN);
-        procExpr();
+        Expr expr = procExpr();
+
+        List<Variable> vars = new ArrayList<Variable>();
+        for (String name : names)
+            vars.add(resolver.declare(line, name));
+
+        return new DeclareListCommand(line, vars, expr);
     }
 
     // <print> ::= (print | println) '(' <expr> ')'
-    private void procPrint() {
+    private PrintCommand procPrint() {
+        int line = current.line;
+        boolean newline = false;
         if (current.type == TokenType.PRINT) {
             advance();
         } else if (current.type == TokenType.PRINTLN) {
             advance();
+            newline = true;
         } else {
             showError();
         }
 
         eat(TokenType.OPEN_PAR);
-        procExpr();
+        Expr expr = procExpr();
         eat(TokenType.CLOSE_PAR);
+
+        return new PrintCommand(line, expr, newline);
     }
 
     // <if> ::= if '(' <expr> ')' <body> [ else <body> ]
-    private void procIf() {
+    private IfCommand procIf() {
+        int line = current.line;
         eat(TokenType.IF);
         eat(TokenType.OPEN_PAR);
-        procExpr();
+        Expr cond = procExpr();
         eat(TokenType.CLOSE_PAR);
-        procBody();
+        Command thenCmds = procBody();
+        Command elseCmds = null;
         if (current.type == TokenType.ELSE) {
             advance();
-            procBody();
+            elseCmds = procBody();
         }
+
+        return new IfCommand(line, cond, thenCmds, elseCmds);
     }
 
     // <while> ::= while '(' <expr> ')' <body>
-    private void procWhile() {
+    private WhileCommand procWhile() {
+        int line = current.line;
         eat(TokenType.WHILE);
         eat(TokenType.OPEN_PAR);
-        procExpr();
+        Expr cond = procExpr();
         eat(TokenType.CLOSE_PAR);
-        procBody();
+        Command cmds = procBody();
+
+        return new WhileCommand(line, cond, cmds);
     }
 
     // <for> ::= for '(' [ ( <def> | <assign> ) { ',' ( <def> | <assign> ) } ] ';' [ <expr> ] ';' [ <assign> { ',' <assign> } ] ')' <body>
-    private void procFor() {
-    	// TODO: implement me!
+    private ForCommand procFor() {
+        int line = current.line;
+        eat(TokenType.FOR);
+        eat(TokenType.OPEN_PAR);
+
+        // Variables declared by the header belong to the loop.
+        resolver.begin();
+
+        BlocksCommand init = null;
+        if (current.type != TokenType.SEMI_COLON) {
+            init = new BlocksCommand(current.line);
+            init.addCommand(current.type == TokenType.DEF ? procDecl() : procAssign());
+            while (current.type == TokenType.COMMA) {
+                advance();
+                init.addCommand(current.type == TokenType.DEF ? procDecl() : procAssign());
+            }
+        }
+        eat(TokenType.SEMI_COLON);
+
+        Expr cond = null;
+        if (current.type != TokenType.SEMI_COLON)
+            cond = procExpr();
+        eat(TokenType.SEMI_COLON);
+
+        BlocksCommand update = null;
+        if (current.type != TokenType.CLOSE_PAR) {
+            update = new BlocksCommand(current.line);
+            update.addCommand(procAssign());
+            while (current.type == TokenType.COMMA) {
+                advance();
+                update.addCommand(procAssign());
+            }
+        }
+        eat(TokenType.CLOSE_PAR);
+
+        Command cmds = procBody();
+        resolver.end();
+
+        return new ForCommand(line, init, cond, update, cmds);
     }
 
     // <foreach> ::= foreach '(' [ def ] <name> in <expr> ')' <body>
-    private void procForeach() {
+    private ForeachCommand procForeach() {
+        int line = current.line;
     	eat(TokenType.FOREACH);
         eat(TokenType.OPEN_PAR);
+        boolean declare = false;
         if(current.type == TokenType.DEF){
             advance();
+            declare = true;
         }
-        procName();
+        int nameLine = current.line;
+        String name = procName();
         eat(TokenType.CONTAINS);
-        procExpr();
+        Expr expr = procExpr();
         eat(TokenType.CLOSE_PAR);
-        procBody();
+
+        resolver.begin();
+        Variable var = declare ? resolver.declare(nameLine, name) :
+            resolver.lookup(nameLine, name);
+        Command cmds = procBody();
+        resolver.end();
+
+        return new ForeachCommand(line, var, declare, expr, cmds);
     }
 
     // <body> ::= <cmd> | '{' <code> '}'
-    private void procBody() {
-    	// TODO: implement me!
-    }
+    private Command procBody() {
+        resolver.begin();
 
-    // <assign> ::= [ <expr>  ( '=' | '+=' | '-=' | '*=' | '/=' | '%=' | '**=') ] <expr>
-    private void procAssign() {
-    	// TODO: implement me!
+        Command cmds;
+        if (current.type == TokenType.OPEN_CUR) {
+            advance();
+            cmds = procCode(TokenType.CLOSE_CUR);
+            eat(TokenType.CLOSE_CUR);
+        } else {
+            cmds = procCmd();
+        }
+
+        resolver.end();
+        return cmds;
     }
 
-    // <expr> ::= <rel> { ('&&' | '||') <rel> }
-    private void procExpr() {
-        procRel();
-        while (current.type == TokenType.AND ||
-                current.type == TokenType.OR) {
-            if (current.type == TokenType.AND) {
-                advance();
-            } else {
-                advance();
-            }
+    // <assign> ::= [ <expr>  ( '=' | '+=' | '-=' | '*=' | '/=' | '%=' | '**=') ] <expr>
+    private AssignCommand procAssign() {
+        int line = current.line;
+        Expr left = procExpr();
 
-            procRel();
+        BinaryOp op;
+        switch (current.type) {
+            case ASSIGN:
+                op = null;
+                break;
+            case ASSIGN_ADD:
+                op = BinaryOp.ADD;
+                break;
+            case ASSIGN_SUB:
+                op = BinaryOp.SUB;
+                break;
+            case ASSIGN_MUL:
+                op = BinaryOp.MUL;
+                break;
+            case ASSIGN_DIV:
+                op = BinaryOp.DIV;
+                break;
+            case ASSIGN_MOD:
+                op = BinaryOp.MOD;
+                break;
+            case ASSIGN_POWER:
+                op = BinaryOp.POWER;
+                break;
+            default:
+                return new AssignCommand(line, null, null, left);
         }
-    }
 
-    // <rel> ::= <cast> [ ('<' | '>' | '<=' | '>=' | '==' | '!=' | in | '!in') <cast> ]
-    private void procRel() {
-        procCast();
+        // Only names and accesses can receive a value.
+        if (!(left instanceof SetExpr))
+            showError();
+
+        advance();
+        Expr right = procExpr();
 
-        // TODO: implement me!
+        return new AssignCommand(line, (SetExpr) left, op, right);
     }
 
-    // <cast> ::= <arith> [ as ( Boolean | Integer | String) ]
-    private void procCast() {
-        procArith();
+    // <expr>  ::= <rel> { ('&&' | '||') <rel> }
+    // <rel>   ::= <cast> [ ('<' | '>' | '<=' | '>=' | '==' | '!=' | in | '!in') <cast> ]
+    // <cast>  ::= <arith> [ as ( Boolean | Integer | String) ]
+    // <arith> ::= <term> { ('+' | '-') <term> }
+    // <term>  ::= <power> { ('*' | '/' | '%') <power> }
+    // <power> ::= <factor> { '**' <factor> }
+    //
+    // The levels are parsed by one loop over the binding powers in LEVEL
+    // rather than a method per level, so a literal costs one call and a
+    // parenthesis two. After an operator, only operators up to the
+    // ceiling may follow: a relation or a cast cannot be chained, so
+    // a < b < c and x as Integer + 1 stop where the grammar stops.
+    // Exponentiation groups to the right: 2 ** 3 ** 2 is 2 ** (3 ** 2).
+    private Expr procExpr() {
+        return procExpr(LOGIC);
+    }
+
+    private Expr procExpr(int min) {
+        Expr left = procFactor();
+
+        int ceiling = POWER;
+        while (true) {
+            int level = LEVEL[current.type.ordinal()];
+            if (level < min || level > ceiling)
+                return left;
+
+            int line = current.line;
+            TokenType type = current.type;
+            advance();
 
-        // TODO: implement me!
+            if (level == CAST) {
+                left = new CastExpr(line, left, procCastType());
+                ceiling = CAST - 1;
+            } else if (level == REL) {
+                left = new BinaryExpr(line, left, OPS[type.ordinal()], procExpr(REL + 1));
+                ceiling = REL - 1;
+            } else if (level == LOGIC) {
+                left = new BinaryExpr(line, left, OPS[type.ordinal()], procExpr(LOGIC + 1));
+                ceiling = LOGIC;
+            } else if (level == POWER) {
+                left = procPower(line, left);
+            } else {
+                left = arith(line, left, OPS[type.ordinal()], procExpr(level + 1));
+                ceiling = level;
+            }
+        }
     }
 
-    // <arith> ::= <term> { ('+' | '-') <term> }
-    private void procArith() {
-        procTerm();
+    // The rest of a run of '**' after its first operator. The operands
+    // are read in a loop and grouped from the right afterwards, so a long
+    // chain does not nest a call per operator.
+    private Expr procPower(int line, Expr left) {
+        List<Expr> operands = new ArrayList<Expr>();
+        List<Integer> lines = new ArrayList<Integer>();
+        operands.add(left);
+        lines.add(line);
+        operands.add(procFactor());
+
+        while (current.type == TokenType.POWER) {
+            lines.add(current.line);
+            advance();
+            operands.add(procFactor());
+        }
 
-        // TODO: implement me!
+        Expr right = operands.get(operands.size() - 1);
+        for (int i = operands.size() - 2; i >= 0; i--)
+            right = arith(lines.get(i), operands.get(i), BinaryOp.POWER, right);
+
+        return right;
     }
 
-    // <term> ::= <power> { ('*' | '/' | '%') <power> }
-    private void procTerm() {
-        procPower();
+    // Boolean | Integer | String, after as.
+    private CastOp procCastType() {
+        CastOp op = null;
+        switch (current.type) {
+            case BOOLEAN:
+                op = CastOp.BOOLEAN;
+                break;
+            case INTEGER:
+                op = CastOp.INTEGER;
+                break;
+            case STRING:
+                op = CastOp.STRING;
+                break;
+            default:
+                showError();
+        }
 
-        // TODO: implement me!
+        advance();
+        return op;
     }
 
-    // <power> ::= <factor> { '**' <factor> }
-    private void procPower() {
-        procFactor();
+    // Arithmetic whose result can only be an int gets the specialized node.
+    private Expr arith(int line, Expr left, BinaryOp op, Expr right) {
+        if (op == BinaryOp.DIV || op == BinaryOp.MOD || op == BinaryOp.POWER ||
+                IntBinaryExpr.isIntType(left))
+            return new IntBinaryExpr(line, left, op, right);
 
-        // TODO: implement me!
+        return new BinaryExpr(line, left, op, right);
     }
 
     // <factor> ::= [ '!' | '-' ] ( '(' <expr> ')' | <rvalue> )
-    private void procFactor() {
+    private Expr procFactor() {
+        int line = current.line;
+        UnaryOp op = null;
         if (current.type == TokenType.NOT) {
             advance();
+            op = UnaryOp.NOT;
         } else if (current.type == TokenType.SUB) {
             advance();
+            op = UnaryOp.NEG;
         }
 
+        Expr expr;
         if (current.type == TokenType.OPEN_PAR) {
             advance();
-            procExpr();
+            expr = procExpr();
             eat(TokenType.CLOSE_PAR);
         } else {
-            procRValue();
+            expr = procRValue();
         }
+
+        return op == null ? expr : new UnaryExpr(line, op, expr);
     }
 
     // <lvalue> ::= <name> { '.' <name> | '[' <expr> ']' }
-    private void procLValue() {
-        procName();
+    private SetExpr procLValue() {
+        int line = current.line;
+        SetExpr base = resolver.lookup(line, procName());
         while(current.type == TokenType.DOT || current.type == TokenType.OPEN_BRA) {
+             line = current.line;
         	 if(current.type == TokenType.DOT){
                  advance();
-                 procName();
+                 String name = procName();
+                 base = new AccessExpr(line, base,
+                     new ConstExpr(line, new TextValue(name)));
              }
              else if(current.type == TokenType.OPEN_BRA){
                  advance();
-                 procExpr();
+                 Expr index = procExpr();
                  eat(TokenType.CLOSE_BRA);
+                 base = new AccessExpr(line, base, index);
              }
          }
+
+        return base;
     }
     // <rvalue> ::= <const> | <function> | <switch> | <struct> | <lvalue>
-    private void procRValue() {
+    private Expr procRValue() {
+        Expr expr = null;
         switch (current.type) {
             case NULL:
             case FALSE:
             case TRUE:
             case NUMBER:
             case TEXT:
-                procConst();
+                expr = procConst();
                 break;
             case READ:
             case EMPTY:
             case SIZE:
             case KEYS:
             case VALUES:
-                procFunction();
+                expr = procFunction();
                 break;
             case SWITCH:
-                procSwitch();
+                expr = procSwitch();
                 break;
             case OPEN_BRA:
-                procStruct();
+                expr = procStruct();
                 break;
             case NAME:
-                procLValue();
+                expr = procLValue();
                 break;
             default:
                 showError();
         }
 
+        return expr;
     }
 
     // <const> ::= null | false | true | <number> | <text>
-    private void procConst() {
+    private ConstExpr procConst() {
+        int line = current.line;
+        Value<?> value = null;
         if (current.type == TokenType.NULL) {
             advance();
         } else if (current.type == TokenType.FALSE) {
             advance();
+            value = BooleanValue.of(false);
         } else if (current.type == TokenType.TRUE) {
             advance();
+            value = BooleanValue.of(true);
         } else if (current.type == TokenType.NUMBER) {
-            procNumber();
+            value = procNumber();
         } else if (current.type == TokenType.TEXT) {
-            procText();
+            value = procText();
         } else {
             showError();
         }
+
+        return new ConstExpr(line, value);
     }
 
     // <function> ::= (read | empty | size | keys | values) '(' <expr> ')'
-    private void procFunction() {
-    	if(current.type == TokenType.READ || current.type == TokenType.EMPTY ||
-    	   current.type == TokenType.SIZE || current.type == TokenType.KEYS ||
-    	   current.type == TokenType.VALUES){
-    			eat(TokenType.OPEN_PAR);
-    	    	procExpr();
-    	    	eat(TokenType.CLOSE_PAR);
-    	   }
+    private FunctionExpr procFunction() {
+        int line = current.line;
+        FunctionOp op = null;
+        switch (current.type) {
+            case READ:
+                op = FunctionOp.READ;
+                break;
+            case EMPTY:
+                op = FunctionOp.EMPTY;
+                break;
+            case SIZE:
+                op = FunctionOp.SIZE;
+                break;
+            case KEYS:
+                op = FunctionOp.KEYS;
+                break;
+            case VALUES:
+                op = FunctionOp.VALUES;
+                break;
+            default:
+                showError();
+        }
+
+        advance();
+        eat(TokenType.OPEN_PAR);
+        Expr expr = procExpr();
+        eat(TokenType.CLOSE_PAR);
+
+        return new FunctionExpr(line, op, expr);
     }
 
     // <switch> ::= switch '(' <expr> ')' '{' { case <expr> '->' <expr> } [ default '->' <expr> ] '}'
-    private void procSwitch() {
+    private SwitchExpr procSwitch() {
+        int line = current.line;
         eat(TokenType.SWITCH);
         eat(TokenType.OPEN_PAR);
-        procExpr();
+        SwitchExpr sw = new SwitchExpr(line, procExpr());
         eat(TokenType.CLOSE_PAR);
         eat(TokenType.OPEN_CUR);
         while (current.type == TokenType.CASE) {
             advance();
-            procExpr();
+            Expr key = procExpr();
             eat(TokenType.ARROW);
-            procExpr();
+            Expr value = procExpr();
+            sw.addCase(key, value);
         }
 
         if (current.type == TokenType.DEFAULT) {
             advance();
             eat(TokenType.ARROW);
-            procExpr();
+            sw.setDefault(procExpr());
         }
 
         eat(TokenType.CLOSE_CUR);
+        return sw;
     }
 
     // <struct> ::= '[' [ ':' | <expr> { ',' <expr> } | <name> ':' <expr> { ',' <name> ':' <expr> } ] ']'
-    private void procStruct() {
+    private Expr procStruct() {
+        int line = current.line;
         eat(TokenType.OPEN_BRA);
 
+        Expr expr;
         if (current.type == TokenType.COLON) {
             advance();
+            expr = new MapExpr(line);
         } else if (current.type == TokenType.CLOSE_BRA) {
-            // Do nothing.
-        } else {
-            Lexeme prev = current;
-            advance();
-
-            if (prev.type == TokenType.NAME &&
-                    current.type == TokenType.COLON) {
-                rollback();
+            expr = new ListExpr(line);
+        } else if (current.type == TokenType.NAME &&
+                tokens.peek(1).type == TokenType.COLON) {
+            MapExpr map = new MapExpr(line);
 
-                procName();
-                eat(TokenType.COLON);
-                procExpr();
+            String name = procName();
+            eat(TokenType.COLON);
+            map.addItem(name, procExpr());
 
-                while (current.type == TokenType.COMMA) {
-                    advance();
+            while (current.type == TokenType.COMMA) {
+                advance();
 
-                    procName();
-                    eat(TokenType.COLON);
-                    procExpr();
-                }
-            } else {
-                rollback();
+                name = procName();
+                eat(TokenType.COLON);
+                map.addItem(name, procExpr());
+            }
 
-                procExpr();
+            expr = map;
+        } else {
+            ListExpr list = new ListExpr(line);
+            list.addItem(procExpr());
 
-                while (current.type == TokenType.COMMA) {
-                    advance();
-                    procExpr();
-                }
+            while (current.type == TokenType.COMMA) {
+                advance();
+                list.addItem(procExpr());
             }
+
+            expr = list;
         }
 
         eat(TokenType.CLOSE_BRA);
+        return expr;
     }
 
-    private void procName() {
+    private String procName() {
+        String name = current.token();
         eat(TokenType.NAME);
+
+        return name;
     }
 
-    private void procNumber() {
+    private NumberValue procNumber() {
+        String token = current.token();
+        int value = 0;
+        try {
+            value = Integer.parseInt(token);
+        } catch (NumberFormatException e) {
+            showError();
+        }
+
         eat(TokenType.NUMBER);
+        return NumberValue.of(value);
     }
 
-    private void procText() {
+    private TextValue procText() {
+        String token = current.token();
         eat(TokenType.TEXT);
+
+        return new TextValue(token);
     }
- 
+
 }
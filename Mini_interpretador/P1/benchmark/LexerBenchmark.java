@@ -0,0 +1,34 @@
+package benchmark;
+
+import lexical.Lexeme;
+import lexical.LexicalAnalysis;
+import lexical.TokenType;
+
+// Runs only the lexer over a file and reports its throughput.
+// Usage: java benchmark.LexerBenchmark [SQL file] [rounds]
+public class LexerBenchmark {
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: java benchmark.LexerBenchmark [SQL file] [rounds]");
+            return;
+        }
+
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        for (int round = 1; round <= rounds; round++) {
+            long tokens = 0;
+            long time = System.nanoTime();
+            try (LexicalAnalysis l = new LexicalAnalysis(args[0])) {
+                Lexeme lex;
+                do {
+                    lex = l.nextToken();
+                    tokens++;
+                } while (lex.type != TokenType.END_OF_FILE);
+            }
+
+            time = System.nanoTime() - time;
+            System.out.printf("round %d: %d tokens, %.0f tokens/s\n",
+                round, tokens, tokens / (time / 1e9));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import lexical.SymbolTable;
+import lexical.TokenType;
+
+// Compares the old HashMap lookup (containsKey + get over a String
+// built from the token) with the perfect-hash lookup over the range.
+// Usage: java benchmark.SymbolTableBenchmark [rounds]
+public class SymbolTableBenchmark {
+
+    private static final String[] SAMPLE = {
+        "SELECT", "name", ",", "age", "FROM", "people", "WHERE", "id", "=",
+        "AND", "score", ">=", "BETWEEN", "ORDER", "BY", "DESC", "ASC",
+        "OR", "IN", "(", ")", "*", "_tmp", "total", "<=", "!=",
+        "<", ">", ";", "city", "accumulator"
+    };
+
+    private static final int LOOKUPS = 10000000;
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+
+        StringBuilder sb = new StringBuilder();
+        int[] starts = new int[SAMPLE.length];
+        int[] ends = new int[SAMPLE.length];
+        for (int i = 0; i < SAMPLE.length; i++) {
+            starts[i] = sb.length();
+            sb.append(SAMPLE[i]);
+            ends[i] = sb.length();
+        }
+
+        char[] chars = sb.toString().toCharArray();
+        String text = sb.toString();
+
+        SymbolTable st = new SymbolTable();
+        Map<String, TokenType> map = new HashMap<String, TokenType>();
+        for (String token : SAMPLE) {
+            TokenType type = st.find(token);
+            if (type != TokenType.NAME)
+                map.put(token, type);
+        }
+
+        for (int round = 1; round <= rounds; round++) {
+            int hits = 0;
+
+            long t0 = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                int k = i % SAMPLE.length;
+                String token = new String(chars, starts[k], ends[k] - starts[k]);
+                TokenType type = map.containsKey(token) ? map.get(token) : TokenType.NAME;
+                hits += type.ordinal();
+            }
+
+            long t1 = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                int k = i % SAMPLE.length;
+                hits -= st.find(text, starts[k], ends[k]).ordinal();
+            }
+
+            long t2 = System.nanoTime();
+            if (hits != 0)
+                throw new IllegalStateException("lookups disagree");
+
+            System.out.printf("round %d: HashMap %.1f ns/lookup, perfect hash %.1f ns/lookup\n",
+                round, (t1 - t0) / (double) LOOKUPS, (t2 - t1) / (double) LOOKUPS);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package lexical;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Deterministic automaton generated from the texts declared in TokenType.
+// Characters are first mapped to a small set of classes through an ASCII
+// table, and the transitions live in one flat array indexed by
+// state * classes + class. scan() follows it to the longest match.
+public class Automaton {
+
+    // Accept codes beyond the TokenType ordinals.
+    public static final int SKIP = TokenType.values().length;
+    public static final int NEWLINE = SKIP + 1;
+
+    private static final int NONE = -1;
+    private static final int DEAD = -1;
+
+    private final byte[] ascii;
+    private final int letterClass;
+    private final int otherClass;
+    private final int eofClass;
+    private final int width;
+
+    private final int start;
+    private final int[] table;
+    private final int[] accepts;
+
+    // identifierStart lists the non-letter characters that may begin a
+    // name; lineComment is the prefix of a comment, or null if the
+    // language has none.
+    public Automaton(String identifierStart, String lineComment) {
+        // One class for each character that takes part in a symbol,
+        // followed by the generic ones.
+        StringBuilder special = new StringBuilder("'");
+        for (TokenType type : TokenType.values()) {
+            String text = type.text();
+            if (text != null && !isIdentifier(text, identifierStart))
+                addChars(special, text);
+        }
+
+        if (lineComment != null)
+            addChars(special, lineComment);
+
+        int classes = special.length();
+        letterClass = classes++;
+        int digitClass = classes++;
+        int spaceClass = classes++;
+        int newlineClass = classes++;
+        otherClass = classes++;
+        eofClass = classes++;
+        width = classes;
+
+        ascii = new byte[128];
+        boolean[] identStart = new boolean[width];
+        boolean[] identPart = new boolean[width];
+        for (int c = 0; c < 128; c++) {
+            int index = special.indexOf(String.valueOf((char) c));
+            int cls;
+            if (index >= 0)
+                cls = index;
+            else if (Character.isLetter(c) || identifierStart.indexOf(c) >= 0)
+                cls = letterClass;
+            else if (Character.isDigit(c))
+                cls = digitClass;
+            else if (c == ' ' || c == '\t' || c == '\r')
+                cls = spaceClass;
+            else if (c == '\n')
+                cls = newlineClass;
+            else
+                cls = otherClass;
+
+            ascii[c] = (byte) cls;
+            if (Character.isLetter(c) || identifierStart.indexOf(c) >= 0)
+                identStart[cls] = true;
+            if (identStart[cls] || Character.isDigit(c))
+                identPart[cls] = true;
+        }
+
+        identStart[letterClass] = identPart[letterClass] = true;
+        identPart[digitClass] = true;
+
+        States b = new States(width);
+        start = b.add(NONE);
+
+        // Symbols and operators.
+        for (TokenType type : TokenType.values()) {
+            String text = type.text();
+            if (text != null && !isIdentifier(text, identifierStart))
+                b.accept(path(b, text), type.ordinal());
+        }
+
+        // Line comments run until the end of the line.
+        if (lineComment != null) {
+            int comment = path(b, lineComment);
+            b.accept(comment, SKIP);
+            for (int cls = 0; cls < width; cls++) {
+                if (cls != newlineClass && cls != eofClass) {
+                    if (b.row(comment)[cls] == DEAD)
+                        b.row(comment)[cls] = comment;
+                }
+            }
+        }
+
+        // Names; keywords are told apart later by the symbol table.
+        int name = b.add(TokenType.NAME.ordinal());
+        for (int cls = 0; cls < width; cls++) {
+            if (identStart[cls] && b.row(start)[cls] == DEAD)
+                b.row(start)[cls] = name;
+            if (identPart[cls])
+                b.row(name)[cls] = name;
+        }
+
+        int number = b.add(TokenType.NUMBER.ordinal());
+        b.row(start)[digitClass] = number;
+        b.row(number)[digitClass] = number;
+
+        int space = b.add(SKIP);
+        b.row(start)[spaceClass] = space;
+        b.row(space)[spaceClass] = space;
+
+        b.row(start)[newlineClass] = b.add(NEWLINE);
+        b.row(start)[eofClass] = b.add(TokenType.END_OF_FILE.ordinal());
+
+        // Text literals between single quotes.
+        int quote = special.indexOf("'");
+        int text = b.add(NONE);
+        b.row(start)[quote] = text;
+        for (int cls = 0; cls < width; cls++)
+            b.row(text)[cls] = text;
+        b.row(text)[quote] = b.add(TokenType.TEXT.ordinal());
+        b.row(text)[eofClass] = b.add(TokenType.UNEXPECTED_EOF.ordinal());
+
+        table = new int[b.size() * width];
+        accepts = new int[b.size()];
+        for (int s = 0; s < b.size(); s++) {
+            System.arraycopy(b.row(s), 0, table, s * width, width);
+            accepts[s] = b.accept(s);
+        }
+    }
+
+    // Follows the longest match that starts at `from`. The end of the
+    // match goes in the high half of the result and its accept code (a
+    // TokenType ordinal, SKIP or NEWLINE) in the low half. A character
+    // that starts no token is reported as a one-character INVALID_TOKEN.
+    public long scan(CharSequence text, int from) {
+        int limit = text.length();
+        int state = start;
+        int pos = from;
+        int accept = NONE;
+        int end = from;
+
+        while (true) {
+            int cls = pos < limit ? classOf(text.charAt(pos)) : eofClass;
+            int next = table[state * width + cls];
+            if (next == DEAD)
+                break;
+
+            state = next;
+            if (cls == eofClass) {
+                if (accepts[state] != NONE) {
+                    accept = accepts[state];
+                    end = pos;
+                }
+
+                break;
+            }
+
+            pos++;
+            if (accepts[state] != NONE) {
+                accept = accepts[state];
+                end = pos;
+            }
+        }
+
+        if (accept == NONE) {
+            accept = TokenType.INVALID_TOKEN.ordinal();
+            end = from + 1;
+        }
+
+        return ((long) end << 32) | accept;
+    }
+
+    public int states() {
+        return accepts.length;
+    }
+
+    public int classes() {
+        return width;
+    }
+
+    private int classOf(char c) {
+        if (c < 128)
+            return ascii[c];
+
+        return Character.isLetter(c) ? letterClass : otherClass;
+    }
+
+    // Walks the trie of fixed texts, creating the missing states.
+    private int path(States b, String text) {
+        int state = start;
+        for (int i = 0; i < text.length(); i++) {
+            int cls = ascii[text.charAt(i)];
+            if (b.row(state)[cls] == DEAD)
+                b.row(state)[cls] = b.add(NONE);
+
+            state = b.row(state)[cls];
+        }
+
+        return state;
+    }
+
+    private static void addChars(StringBuilder special, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (special.indexOf(text.substring(i, i + 1)) < 0)
+                special.append(text.charAt(i));
+        }
+    }
+
+    private static boolean isIdentifier(String text, String identifierStart) {
+        char c = text.charAt(0);
+        return Character.isLetter(c) || identifierStart.indexOf(c) >= 0;
+    }
+
+    // The states while the automaton is being generated.
+    private static class States {
+
+        private int width;
+        private List<int[]> rows;
+        private List<Integer> accepts;
+
+        States(int width) {
+            this.width = width;
+            this.rows = new ArrayList<int[]>();
+            this.accepts = new ArrayList<Integer>();
+        }
+
+        int add(int accept) {
+            int[] row = new int[width];
+            Arrays.fill(row, DEAD);
+            rows.add(row);
+            accepts.add(accept);
+            return rows.size() - 1;
+        }
+
+        int[] row(int state) {
+            return rows.get(state);
+        }
+
+        int accept(int state) {
+            return accepts.get(state);
+        }
+
+        void accept(int state, int accept) {
+            accepts.set(state, accept);
+        }
+
+        int size() {
+            return rows.size();
+        }
+    }
+}
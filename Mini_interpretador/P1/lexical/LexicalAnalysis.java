@@ -1,31 +1,35 @@
 package lexical;
 
-import java.io.FileInputStream;
-import java.io.PushbackInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 public class LexicalAnalysis implements AutoCloseable {
 
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final Automaton automaton = new Automaton("_", null);
+
     private int line;
     private SymbolTable st;
-    private PushbackInputStream input;
+    private String input;
+    private int position;
 
     public LexicalAnalysis(String filename) {
         try {
-            input = new PushbackInputStream(new FileInputStream(filename), 2);
+            input = new String(Files.readAllBytes(Paths.get(filename)),
+                StandardCharsets.ISO_8859_1);
         } catch (Exception e) {
             throw new LexicalException("Unable to open file");
         }
 
-        st = new SymbolTable();
+        st = SymbolTable.instance();
         line = 1;
+        position = 0;
     }
     
     public void close() {
-        try {
-            input.close();
-        } catch (Exception e) {
-            throw new LexicalException("Unable to close file");
-        }
+        // The whole file is read when the lexer is created.
+        input = null;
     }
 
     public int getLine() {
@@ -33,132 +37,43 @@ public class LexicalAnalysis implements AutoCloseable {
     }
 
     public Lexeme nextToken() {
-        Lexeme lex = new Lexeme("", TokenType.END_OF_FILE);
-
-        int state = 1;
-        while (state != 7 && state != 8) {
-            int c = getc();
-            // System.out.printf("  [%02d, %03d ('%c')]\n",
-            //     state, c, (char) c);
+        while (true) {
+            int start = position;
+            long match = automaton.scan(input, start);
+            int end = (int) (match >>> 32);
+            int accept = (int) match;
+            position = end;
 
-            switch (state) {
-                case 1:
-                    if (c == ' ' || c == '\t' || c == '\r' || c == '\s') {
-                        state = 1;
-                    }
-                    else if (c == '\n') {
-                        line++;
-                        state = 1;
-                    }
-                    else if (c == '_' || Character.isLetter(c)) {
-                        lex.token += (char) c;
-                        state = 4;
-                    }
-                    else if (c == '=' || c == ',' || c == ';' || c == '*' || c == '(' || c == ')') {
-                        lex.token += (char) c;
-                        state = 7;
-                    }
-                    else if (c == '!') {
-                        lex.token += (char) c;
-                        state = 2;
-                    }
-                    else if (c == '>' || c == '<') {
-                        lex.token += (char) c;
-                        state = 3;
-                    }
-                    else if (Character.isDigit(c)) {
-                        lex.token += (char) c;
-                        state = 5;
-                    }
-                    else if (c == '\'') {
-                        state = 6;
-                    }
-                    else if (c == -1) {
-                        lex.type = TokenType.END_OF_FILE;
-                        state = 8;
-                    }
-                    else {
-                        lex.token += (char) c;
-                        lex.type = TokenType.INVALID_TOKEN;
-                        state = 8;
-                    }
-                    break;
-                case 2:
-                    if (c == '=') {
-                        lex.token += (char) c;
-                        state = 7;
-                    }
-                    else {
-                    	lex.type = TokenType.INVALID_TOKEN;
-                        state = 7;
-                    }
-                    break;
-                case 3:
-                    if (c == '=') {
-                        lex.token += (char) c;
-                        state = 7;
-                    }
-                    else {
-                        ungetc(c);
-                        state = 7;
-                    }
-                    break;
-                case 4:
-                    if (c == '_'|| Character.isLetter(c) || Character.isDigit(c)) {
-                        lex.token += (char) c;
-                        state = 4;
-                    }
-                    else {
-                        ungetc(c);
-                        state = 7;
-                    }
-                    break;
-                case 5:
-                    if (Character.isDigit(c)) {
-                        lex.token += (char) c;
-                        state = 5;
-                    }
-                    else {
-                        ungetc(c);
-                        lex.type = TokenType.NUMBER;
-                        state = 8;
-                    }
-                    break;
-                case 6:
-                    if (c == '\'') {
-                        lex.type = TokenType.TEXT;
-                        state = 8;
-                    }
-                    else {
-                        lex.token += (char) c;
-                        state = 6;
-                    }
-                    break;
-                default: 
-                    throw new LexicalException("Unreachable");
+            if (accept == Automaton.NEWLINE) {
+                line++;
+            } else if (accept != Automaton.SKIP) {
+                TokenType type = TYPES[accept];
+                switch (type) {
+                    case NAME:
+                        type = st.find(input, start, end);
+                        return new Lexeme(type == TokenType.NAME ?
+                            input.substring(start, end) : st.token(type), type);
+                    case TEXT:
+                        countLines(start, end);
+                        return new Lexeme(input.substring(start + 1, end - 1), type);
+                    case UNEXPECTED_EOF:
+                        countLines(start, end);
+                        return new Lexeme(input.substring(start + 1, end), type);
+                    case NUMBER:
+                    case INVALID_TOKEN:
+                    case END_OF_FILE:
+                        return new Lexeme(input.substring(start, end), type);
+                    default:
+                        return new Lexeme(st.token(type), type);
+                }
             }
         }
-
-        if (state == 7) {
-            lex.type = st.find(lex.token);
-        }
-        return lex;
     }
 
-    private int getc() {
-        try {
-            return input.read();
-        } catch (Exception e) {
-            throw new LexicalException("Unable to read file");
-        }
-    }
-    private void ungetc(int c) {
-        if (c != -1) {
-            try {
-                input.unread(c);
-            } catch (Exception e) {
-                throw new LexicalException("Unable to ungetc");
-            }
+    private void countLines(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (input.charAt(i) == '\n')
+                line++;
         }
     }
 }
@@ -1,49 +1,119 @@
 package lexical;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class SymbolTable {
     
-    private Map<String, TokenType> st;
+    private static final int MAX_SEARCH = 1 << 20;
+
+    // The tokens are fixed by TokenType, so the seed is searched once
+    // and the table is shared by every lexer.
+    private static final SymbolTable INSTANCE = new SymbolTable();
+
+    private String[] keys;
+    private TokenType[] types;
+    private String[] tokens;
+    private int seed;
+    private int shift;
+    private int maxLength;
 
     public SymbolTable() {
-        st = new HashMap<String, TokenType>();
-
-        // SYMBOLS
-        st.put(";", TokenType.SEMI_COLON);
-        st.put(",", TokenType.COMMA);
-        st.put("*", TokenType.MUL);
-        st.put("(", TokenType.OPEN_BRA);
-        st.put(")", TokenType.CLOSE_BRA);
-
-        // OPERATORS
-        st.put("=", TokenType.ASSIGN);
-        st.put("!=", TokenType.NOT_EQUALS);
-        st.put("<", TokenType.LOWER);
-        st.put(">", TokenType.GREATER);
-        st.put("<=", TokenType.LOWER_EQUAL);
-        st.put(">=", TokenType.GREATER_EQUAL);
-        
-        // KEYWORDS
-        st.put("SELECT", TokenType.SELECT);
-        st.put("FROM", TokenType.FROM);
-        st.put("WHERE", TokenType.WHERE);
-        st.put("AND", TokenType.AND);
-        st.put("OR", TokenType.OR);
-        st.put("BETWEEN", TokenType.BETWEEN);
-        st.put("ORDER", TokenType.ORDER);
-        st.put("BY", TokenType.BY);
-        st.put("ASC", TokenType.ASC);
-        st.put("DESC", TokenType.DESC);
-        st.put("IN", TokenType.IN);
+        Map<String, TokenType> st = new LinkedHashMap<String, TokenType>();
+
+        // SYMBOLS, OPERATORS and KEYWORDS
+        for (TokenType type : TokenType.values()) {
+            if (type.text() != null)
+                st.put(type.text(), type);
+        }
+
+        build(st);
+    }
+
+    public static SymbolTable instance() {
+        return INSTANCE;
     }
 
     public boolean contains(String token) {
-        return st.containsKey(token);
+        return this.find(token) != TokenType.NAME;
     }
 
     public TokenType find(String token) {
-        return this.contains(token) ? st.get(token) : TokenType.NAME;
+        return this.find(token, 0, token.length());
+    }
+
+    // Looks up the token text[start, end) without building a String.
+    // The slot comes from a perfect hash, so there is at most one
+    // candidate to compare against.
+    public TokenType find(CharSequence text, int start, int end) {
+        int length = end - start;
+        if (length <= 0 || length > maxLength)
+            return TokenType.NAME;
+
+        int slot = slot(features(text, start, end));
+        String key = keys[slot];
+        if (key == null || key.length() != length)
+            return TokenType.NAME;
+
+        for (int i = 0; i < length; i++) {
+            if (key.charAt(i) != text.charAt(start + i))
+                return TokenType.NAME;
+        }
+
+        return types[slot];
+    }
+
+    // The canonical text of a symbol, operator or keyword.
+    public String token(TokenType type) {
+        return tokens[type.ordinal()];
+    }
+
+    // Searches for a multiplier that sends every token to its own slot
+    // of a table four times larger than the token set.
+    private void build(Map<String, TokenType> st) {
+        int bits = 2;
+        while ((1 << bits) < st.size() * 4)
+            bits++;
+
+        shift = 32 - bits;
+        tokens = new String[TokenType.values().length];
+        for (Map.Entry<String, TokenType> e : st.entrySet()) {
+            tokens[e.getValue().ordinal()] = e.getKey();
+            maxLength = Math.max(maxLength, e.getKey().length());
+        }
+
+        for (int candidate = 1; candidate < MAX_SEARCH; candidate += 2) {
+            seed = candidate * 0x9E3779B1;
+            keys = new String[1 << bits];
+            types = new TokenType[1 << bits];
+
+            boolean perfect = true;
+            for (Map.Entry<String, TokenType> e : st.entrySet()) {
+                String key = e.getKey();
+                int slot = slot(features(key, 0, key.length()));
+                if (keys[slot] != null) {
+                    perfect = false;
+                    break;
+                }
+
+                keys[slot] = key;
+                types[slot] = e.getValue();
+            }
+
+            if (perfect)
+                return;
+        }
+
+        throw new LexicalException("Unable to build symbol table");
+    }
+
+    private static int features(CharSequence text, int start, int end) {
+        int length = end - start;
+        return (((length * 31) + text.charAt(start)) * 31 +
+            text.charAt(end - 1)) * 31 + text.charAt(start + (length >> 1));
+    }
+
+    private int slot(int features) {
+        return (features * seed) >>> shift;
     }
 }
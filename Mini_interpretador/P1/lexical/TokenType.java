@@ -7,35 +7,51 @@ public enum TokenType {
     END_OF_FILE,
 
     // SYMBOLS
-    SEMI_COLON,     // ;
-    COMMA,          // ,
-    MUL,            // *
-    OPEN_BRA,		// (
-    CLOSE_BRA, 		// )
+    SEMI_COLON(";"),
+    COMMA(","),
+    MUL("*"),
+    OPEN_BRA("("),
+    CLOSE_BRA(")"),
 
     // OPERATORS
-    ASSIGN,         // =
-    NOT_EQUALS,     // !=
-    LOWER,          // <
-    GREATER,        // >
-    LOWER_EQUAL,    // <=
-    GREATER_EQUAL,  // >=
+    ASSIGN("="),
+    NOT_EQUALS("!="),
+    LOWER("<"),
+    GREATER(">"),
+    LOWER_EQUAL("<="),
+    GREATER_EQUAL(">="),
 
     // KEYWORDS
-    SELECT,
-    FROM,
-    WHERE,
-    AND,
-    OR,
-    BETWEEN,
-    ORDER,
-    BY,
-    ASC,
-    DESC,
-    IN,
+    SELECT("SELECT"),
+    FROM("FROM"),
+    WHERE("WHERE"),
+    AND("AND"),
+    OR("OR"),
+    BETWEEN("BETWEEN"),
+    ORDER("ORDER"),
+    BY("BY"),
+    ASC("ASC"),
+    DESC("DESC"),
+    IN("IN"),
 
     // OTHERS
     NAME,           // identifier
     NUMBER,         // integer
-    TEXT            // string
-};
+    TEXT;           // string
+
+    private final String text;
+
+    private TokenType() {
+        this(null);
+    }
+
+    // The fixed text of a symbol, operator or keyword; both the symbol
+    // table and the lexer automaton are generated from these.
+    private TokenType(String text) {
+        this.text = text;
+    }
+
+    public String text() {
+        return text;
+    }
+}
@@ -1,22 +1,50 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+
 import interpreter.command.Command;
 import lexical.Lexeme;
 import lexical.LexicalAnalysis;
 import lexical.TokenType;
+import syntatic.BinaryTrace;
 import syntatic.SyntaticAnalysis;
+import syntatic.TextTrace;
 
 public class mgi {
 
     public static void main(String[] args) {
-        if (args.length != 1) {
-            System.out.println("Usage: java mgi [miniGroovy file]");
+        if (args.length == 2 && args[0].equals("--replay")) {
+            replay(args[1]);
+            return;
+        }
+
+        boolean trace = args.length == 2 && args[0].equals("--trace");
+        String traceFile = args.length == 3 && args[0].equals("--trace-file") ? args[1] : null;
+        if (args.length != 1 && !trace && traceFile == null) {
+            System.out.println("Usage: java mgi [--trace | --trace-file [trace]] [miniGroovy file]");
+            System.out.println("       java mgi --replay [trace]");
             return;
         }
 
-        try (LexicalAnalysis l = new LexicalAnalysis(args[0])) {
+        try (LexicalAnalysis l = new LexicalAnalysis(args[args.length - 1])) {
             // O código a seguir é dado para testar o interpretador.
             // TODO: descomentar depois que o analisador léxico estiver OK.
             SyntaticAnalysis s = new SyntaticAnalysis(l);
+            BinaryTrace binary = null;
+            if (trace) {
+                s.setListener(new TextTrace(System.out));
+            } else if (traceFile != null) {
+                binary = new BinaryTrace(new BufferedOutputStream(
+                    new FileOutputStream(traceFile)));
+                s.setListener(binary);
+            }
+
             Command c = s.start();
+            if (binary != null)
+                binary.close();
+
             System.out.println("Sim");
             // c.execute();
             
@@ -36,4 +64,13 @@ public class mgi {
             System.err.println("Internal error: " + e.getMessage());
             }
     }
+
+    // Prints a binary trace written by --trace-file as text.
+    private static void replay(String filename) {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(filename))) {
+            BinaryTrace.replay(in, new TextTrace(System.out));
+        } catch (Exception e) {
+            System.err.println("Internal error: " + e.getMessage());
+        }
+    }
 }
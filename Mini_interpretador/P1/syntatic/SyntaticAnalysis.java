@@ -5,19 +5,21 @@ import lexical.Lexeme;
 import lexical.LexicalAnalysis;
 import lexical.TokenType;
 
-import java.util.Stack;
-
 public class SyntaticAnalysis {
     private LexicalAnalysis lex;
+    private Lookahead tokens;
     private Lexeme current;
-    private Stack<Lexeme> history;
-    private Stack<Lexeme> queued;
+    private ParseListener listener;
 
     public SyntaticAnalysis(LexicalAnalysis lex) {
         this.lex = lex;
-        this.current = lex.nextToken();
-        this.history = new Stack<Lexeme>();
-        this.queued = new Stack<Lexeme>();
+        this.tokens = new Lookahead(lex, 1);
+        this.current = tokens.peek(0);
+    }
+
+    // Tracing is off unless a listener is set.
+    public void setListener(ParseListener listener) {
+        this.listener = listener;
     }
 
     public Command start() {
@@ -26,26 +28,18 @@ public class SyntaticAnalysis {
         return null;
     }
 
-    private void rollback() {
-        assert !history.isEmpty();
-
-        System.out.println("Rollback (\"" + current.token + "\", " + current.type + ")");
-        queued.push(current);
-        current = history.pop();
-    }
-
     private void advance() {
-        System.out.println("Advanced (\"" + current.token + "\", " +
-            current.type + ")");
-        history.add(current);
-        current = queued.isEmpty() ? lex.nextToken() : queued.pop();
+        if (listener != null)
+            listener.advanced(current);
+
+        current = tokens.next();
     }
     private void eat(TokenType type) {
-        System.out.println("Expected (..., " + type + "), found (\"" + 
-            current.token + "\", " + current.type + ")");
+        if (listener != null)
+            listener.expected(type, current);
+
         if (type == current.type) {
-            history.add(current);
-            current = queued.isEmpty() ? lex.nextToken() : queued.pop();
+            current = tokens.next();
         } else {
             showError();
         }
@@ -0,0 +1,26 @@
+package syntatic;
+
+import java.io.PrintStream;
+
+import lexical.Lexeme;
+import lexical.TokenType;
+
+// Prints every parser event in the format the parser used to write to
+// the console.
+public class TextTrace implements ParseListener {
+
+    private PrintStream out;
+
+    public TextTrace(PrintStream out) {
+        this.out = out;
+    }
+
+    public void advanced(Lexeme lex) {
+        out.println("Advanced (\"" + lex.token + "\", " + lex.type + ")");
+    }
+
+    public void expected(TokenType type, Lexeme found) {
+        out.println("Expected (..., " + type + "), found (\"" +
+            found.token + "\", " + found.type + ")");
+    }
+}